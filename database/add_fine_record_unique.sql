@@ -0,0 +1,14 @@
+-- ============================================
+-- Allow at most one fine per borrowing record
+-- FineDAO.upsertFines relies on the key so that the overdue job and a concurrent return
+-- cannot both create a fine for the same record
+-- ============================================
+
+USE library_management;
+
+-- Drop pending duplicates, keeping a paid or waived fine if there is one, otherwise the oldest
+DELETE f FROM fines f
+JOIN fines other ON other.record_id = f.record_id AND other.fine_id <> f.fine_id
+WHERE f.status = 'PENDING' AND (other.status <> 'PENDING' OR other.fine_id < f.fine_id);
+
+ALTER TABLE fines ADD UNIQUE KEY unique_record_fine (record_id);
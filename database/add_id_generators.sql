@@ -0,0 +1,18 @@
+-- ============================================
+-- Add the ID generator table
+-- Required by the @TableGenerator IDs of User, Book and Author (replacing AUTO_INCREMENT
+-- inserts, which cannot be batched). Each row holds the last ID handed out; run while the
+-- application is stopped so the starting values are current
+-- ============================================
+
+USE library_management;
+
+CREATE TABLE id_generators (
+    sequence_name VARCHAR(64) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'users', COALESCE(MAX(user_id), 0) FROM users
+UNION ALL SELECT 'books', COALESCE(MAX(book_id), 0) FROM books
+UNION ALL SELECT 'authors', COALESCE(MAX(author_id), 0) FROM authors;
@@ -0,0 +1,9 @@
+-- ============================================
+-- Add the index used by the overdue job
+-- Serves the batched BORROWED -> OVERDUE flip (status = ? AND due_date < ? ORDER BY due_date)
+-- and the status lookups of overdue reads
+-- ============================================
+
+USE library_management;
+
+ALTER TABLE borrowing_records ADD INDEX idx_status_due_date (status, due_date);
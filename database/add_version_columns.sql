@@ -0,0 +1,12 @@
+-- ============================================
+-- Add optimistic locking version columns
+-- Required by the @Version fields on Book, BorrowingRecord, User, Fine and Reservation
+-- ============================================
+
+USE library_management;
+
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER last_login;
+ALTER TABLE books ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER status;
+ALTER TABLE borrowing_records ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER returned_to;
+ALTER TABLE reservations ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER notified;
+ALTER TABLE fines ADD COLUMN version BIGINT NOT NULL DEFAULT 0 AFTER payment_method;
@@ -27,6 +27,7 @@ CREATE TABLE users (
     status ENUM('ACTIVE', 'INACTIVE', 'SUSPENDED') NOT NULL DEFAULT 'ACTIVE',
     registration_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     last_login TIMESTAMP NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     INDEX idx_username (username),
@@ -83,6 +84,7 @@ CREATE TABLE books (
     available_copies INT NOT NULL DEFAULT 1,
     category_id BIGINT,
     status ENUM('AVAILABLE', 'UNAVAILABLE', 'DAMAGED', 'LOST') NOT NULL DEFAULT 'AVAILABLE',
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES categories(category_id) ON DELETE SET NULL,
@@ -123,6 +125,7 @@ CREATE TABLE borrowing_records (
     notes TEXT,
     issued_by BIGINT,
     returned_to BIGINT,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
@@ -133,7 +136,8 @@ CREATE TABLE borrowing_records (
     INDEX idx_book (book_id),
     INDEX idx_status (status),
     INDEX idx_borrow_date (borrow_date),
-    INDEX idx_due_date (due_date)
+    INDEX idx_due_date (due_date),
+    INDEX idx_status_due_date (status, due_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- ============================================
@@ -148,6 +152,7 @@ CREATE TABLE reservations (
     expiry_date TIMESTAMP NOT NULL,
     status ENUM('ACTIVE', 'FULFILLED', 'CANCELLED', 'EXPIRED') NOT NULL DEFAULT 'ACTIVE',
     notified BOOLEAN DEFAULT FALSE,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
@@ -193,15 +198,27 @@ CREATE TABLE fines (
     payment_date TIMESTAMP NULL,
     status ENUM('PENDING', 'PAID', 'WAIVED') NOT NULL DEFAULT 'PENDING',
     payment_method VARCHAR(50),
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (record_id) REFERENCES borrowing_records(record_id) ON DELETE CASCADE,
     FOREIGN KEY (user_id) REFERENCES users(user_id) ON DELETE CASCADE,
+    UNIQUE KEY unique_record_fine (record_id),
     INDEX idx_user (user_id),
     INDEX idx_status (status),
     INDEX idx_fine_date (fine_date)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- ============================================
+-- Table: id_generators
+-- Description: Last ID handed out for users, books and authors. The application reserves IDs
+-- in blocks (see @TableGenerator) so that inserts can be batched
+-- ============================================
+CREATE TABLE id_generators (
+    sequence_name VARCHAR(64) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- ============================================
 -- Insert Default Categories
 -- ============================================
@@ -269,6 +286,14 @@ INSERT INTO users (username, email, password_hash, first_name, last_name, phone,
 ('instructor1', 'instructor@library.com', '$2a$10$92IXUNpkjO0rOQ5byMi.Ye4oKoEa3Ro9llC/.og/at2.uheWG/igi', 'John', 'Smith', '+1234567891', '456 Academic Avenue', 'INSTRUCTOR', 'ACTIVE'),
 ('user1', 'user@library.com', '$2a$10$92IXUNpkjO0rOQ5byMi.Ye4oKoEa3Ro9llC/.og/at2.uheWG/igi', 'Jane', 'Doe', '+1234567892', '789 Student Lane', 'USER', 'ACTIVE');
 
+-- ============================================
+-- Start the ID generators after the default data
+-- ============================================
+INSERT INTO id_generators (sequence_name, next_val)
+SELECT 'users', COALESCE(MAX(user_id), 0) FROM users
+UNION ALL SELECT 'books', COALESCE(MAX(book_id), 0) FROM books
+UNION ALL SELECT 'authors', COALESCE(MAX(author_id), 0) FROM authors;
+
 -- ============================================
 -- Views for Common Queries
 -- ============================================
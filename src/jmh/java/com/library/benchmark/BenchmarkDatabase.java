@@ -0,0 +1,150 @@
+package com.library.benchmark;
+
+import com.library.entity.Author;
+import com.library.entity.Book;
+import com.library.entity.Category;
+import com.library.entity.User;
+import com.library.security.PasswordUtil;
+import com.library.util.JPAUtil;
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeds an in-memory H2 database (MySQL mode) with a reproducible catalog for the benchmarks.
+ * The same seed always produces the same rows, so results are comparable between runs.
+ * Sizes can be changed with -Dbench.books, -Dbench.authors and -Dbench.users.
+ */
+public final class BenchmarkDatabase {
+    
+    public static final long SEED = 42L;
+    public static final int BOOKS = Integer.getInteger("bench.books", 10000);
+    public static final int AUTHORS = Integer.getInteger("bench.authors", 2000);
+    public static final int USERS = Integer.getInteger("bench.users", 200);
+    public static final int CATEGORIES = 20;
+    public static final String PASSWORD = "benchmark-password";
+    
+    // Vocabulary for generated titles and descriptions; also used to pick search terms
+    public static final String[] WORDS = {
+        "river", "shadow", "garden", "empire", "winter", "silence", "harbor", "stone", "light", "journey",
+        "kingdom", "forest", "memory", "ocean", "mountain", "secret", "crown", "glass", "storm", "letter",
+        "island", "machine", "history", "night", "fire", "castle", "desert", "bridge", "dream", "city",
+        "meadow", "echo", "north", "signal", "orchard", "library", "voyage", "thunder", "silver", "tower"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Ada", "Jorge", "Toni", "Haruki", "Chimamanda", "Italo", "Ursula", "Gabriel", "Virginia", "Orhan"
+    };
+    private static final String[] LAST_NAMES = {
+        "Lovelace", "Borges", "Morrison", "Murakami", "Adichie", "Calvino", "Le Guin", "Marquez", "Woolf", "Pamuk"
+    };
+    
+    private static boolean seeded;
+    
+    private BenchmarkDatabase() {
+    }
+    
+    /**
+     * Point the persistence unit at H2 and load the dataset, once per JVM
+     */
+    public static synchronized void init() {
+        if (seeded) {
+            return;
+        }
+        setDefault("db.driver", "org.h2.Driver");
+        setDefault("db.url", "jdbc:h2:mem:benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        setDefault("db.username", "sa");
+        setDefault("db.password", "");
+        setDefault("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        setDefault("hibernate.hbm2ddl.auto", "create");
+        setDefault("hibernate.show_sql", "false");
+        
+        seed();
+        seeded = true;
+    }
+    
+    private static void setDefault(String key, String value) {
+        if (System.getProperty(key) == null) {
+            System.setProperty(key, value);
+        }
+    }
+    
+    private static void seed() {
+        Random random = new Random(SEED);
+        String passwordHash = PasswordUtil.hashPassword(PASSWORD);
+        
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            em.getTransaction().begin();
+            
+            List<Category> categories = new ArrayList<>();
+            for (int i = 0; i < CATEGORIES; i++) {
+                Category category = new Category("Category " + i, "Generated category " + i);
+                em.persist(category);
+                categories.add(category);
+            }
+            
+            List<Author> authors = new ArrayList<>();
+            for (int i = 0; i < AUTHORS; i++) {
+                Author author = new Author(FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " " + i);
+                em.persist(author);
+                authors.add(author);
+            }
+            
+            for (int i = 0; i < USERS; i++) {
+                User user = new User("user" + i, "user" + i + "@bench.local", passwordHash, "User", "Number" + i);
+                em.persist(user);
+            }
+            em.flush();
+            em.clear();
+            
+            for (int i = 0; i < BOOKS; i++) {
+                Book book = new Book(String.format("978%010d", i), phrase(random, 2 + random.nextInt(4)),
+                    1 + random.nextInt(5));
+                book.setSubtitle(random.nextBoolean() ? phrase(random, 3) : null);
+                book.setPublisher("Publisher " + random.nextInt(50));
+                book.setDescription(phrase(random, 20));
+                book.setLanguage("English");
+                book.setPages(100 + random.nextInt(600));
+                book.setCategory(em.getReference(Category.class, categories.get(random.nextInt(CATEGORIES)).getCategoryId()));
+                int firstAuthor = random.nextInt(AUTHORS);
+                book.getAuthors().add(em.getReference(Author.class, authors.get(firstAuthor).getAuthorId()));
+                if (random.nextBoolean()) {
+                    int secondAuthor = (firstAuthor + 1 + random.nextInt(AUTHORS - 1)) % AUTHORS;
+                    book.getAuthors().add(em.getReference(Author.class, authors.get(secondAuthor).getAuthorId()));
+                }
+                em.persist(book);
+                if (i % 500 == 499) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+    
+    /**
+     * A space-separated run of vocabulary words
+     */
+    public static String phrase(Random random, int words) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                builder.append(' ');
+            }
+            String word = WORDS[random.nextInt(WORDS.length)];
+            builder.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+        }
+        return builder.toString();
+    }
+}
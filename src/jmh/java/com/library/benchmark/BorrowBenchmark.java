@@ -0,0 +1,53 @@
+package com.library.benchmark;
+
+import com.library.dto.BorrowingRecordDTO;
+import com.library.service.BorrowingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout transaction. Each invocation borrows a book and returns it again,
+ * so stock and per-user limits stay constant for the whole run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BorrowBenchmark {
+    
+    private BorrowingService borrowingService;
+    private long sequence;
+    
+    @Setup
+    public void setUp() {
+        BenchmarkDatabase.init();
+        borrowingService = new BorrowingService();
+    }
+    
+    @Benchmark
+    public Map<String, Object> borrowAndReturn() {
+        long n = sequence++;
+        long userId = 1 + n % BenchmarkDatabase.USERS;
+        long bookId = 1 + n % BenchmarkDatabase.BOOKS;
+        
+        Map<String, Object> borrowed = borrowingService.borrowBook(userId, bookId, null, 14);
+        if (!Boolean.TRUE.equals(borrowed.get("success"))) {
+            throw new IllegalStateException("Borrow failed: " + borrowed.get("message"));
+        }
+        Long recordId = ((BorrowingRecordDTO) borrowed.get("record")).getRecordId();
+        return borrowingService.returnBook(recordId, null);
+    }
+}
@@ -0,0 +1,110 @@
+package com.library.benchmark;
+
+import com.library.dto.BorrowingRecordDTO;
+import com.library.dto.DtoTypeAdapterFactory;
+import com.library.entity.BorrowingRecord;
+import com.library.util.GsonUtil;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization throughput of a full borrowing listing (GET /api/borrowings without paging),
+ * four timestamps per record. "tree" is the former JsonSerializer-based date handling,
+ * "text" and "epochMillis" are the streaming adapters in GsonUtil. Needs no database.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class BorrowingJsonBenchmark {
+    
+    private static final Type RECORD_LIST = new TypeToken<List<BorrowingRecordDTO>>() { }.getType();
+    
+    @Param({"tree", "text", "epochMillis"})
+    public String dateFormat;
+    
+    @Param({"1000"})
+    public int records;
+    
+    private Gson gson;
+    private List<BorrowingRecordDTO> listing;
+    
+    @Setup
+    public void setUp() {
+        switch (dateFormat) {
+            case "tree":
+                gson = treeModelGson();
+                break;
+            case "epochMillis":
+                gson = GsonUtil.createGson(GsonUtil.DateTimeFormat.EPOCH_MILLIS);
+                break;
+            default:
+                gson = GsonUtil.createGson(GsonUtil.DateTimeFormat.TEXT);
+        }
+        
+        Random random = new Random(BenchmarkDatabase.SEED);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 9, 0);
+        listing = new ArrayList<>(records);
+        for (int i = 0; i < records; i++) {
+            LocalDateTime borrowed = start.plusMinutes(random.nextInt(500000));
+            boolean returned = random.nextBoolean();
+            listing.add(new BorrowingRecordDTO((long) i + 1, borrowed, borrowed.plusDays(14),
+                returned ? borrowed.plusDays(random.nextInt(20)) : null,
+                returned ? BorrowingRecord.BorrowStatus.RETURNED : BorrowingRecord.BorrowStatus.BORROWED,
+                BigDecimal.ZERO, null, 1L + random.nextInt(BenchmarkDatabase.USERS), "user" + i, "User",
+                "Number" + i, 1L + random.nextInt(BenchmarkDatabase.BOOKS),
+                BenchmarkDatabase.phrase(random, 3), String.format("978%010d", i)));
+        }
+    }
+    
+    @Benchmark
+    public int serializeListing() {
+        StringWriter writer = new StringWriter(records * 400);
+        gson.toJson(listing, RECORD_LIST, writer);
+        return writer.getBuffer().length();
+    }
+    
+    /**
+     * Date handling as GsonUtil registered it before the streaming adapters
+     */
+    private static Gson treeModelGson() {
+        DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        return new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class,
+                (JsonSerializer<LocalDateTime>) (src, typeOfSrc, context) ->
+                    context.serialize(src.format(dateTimeFormatter)))
+            .registerTypeAdapter(LocalDate.class,
+                (JsonSerializer<LocalDate>) (src, typeOfSrc, context) ->
+                    context.serialize(src.format(dateFormatter)))
+            .registerTypeAdapterFactory(new DtoTypeAdapterFactory())
+            .serializeNulls()
+            .create();
+    }
+}
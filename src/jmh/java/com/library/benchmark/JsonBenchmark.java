@@ -0,0 +1,52 @@
+package com.library.benchmark;
+
+import com.library.dto.BookDTO;
+import com.library.service.BookService;
+import com.library.util.GsonUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson serialization of the book views built by BookService, as returned by /api/books
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JsonBenchmark {
+    
+    private BookDTO book;
+    private List<BookDTO> page;
+    
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        BenchmarkDatabase.init();
+        page = (List<BookDTO>) new BookService().getBooksPage(null, 100).get("data");
+        book = page.get(0);
+    }
+    
+    @Benchmark
+    public String serializeBook() {
+        return GsonUtil.toJson(book);
+    }
+    
+    @Benchmark
+    public String serializePageOf100() {
+        return GsonUtil.toJson(Map.of("success", true, "data", page));
+    }
+}
@@ -0,0 +1,55 @@
+package com.library.benchmark;
+
+import com.library.entity.User;
+import com.library.security.JWTUtil;
+import io.jsonwebtoken.Claims;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT issue and verification, paid on login and on every authenticated request
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JwtBenchmark {
+    
+    private User user;
+    private String token;
+    
+    @Setup
+    public void setUp() {
+        user = new User("benchmark", "benchmark@bench.local", "", "Bench", "Mark");
+        user.setUserId(1L);
+        user.setRole(User.UserRole.USER);
+        token = JWTUtil.generateToken(user);
+    }
+    
+    @Benchmark
+    public String generateToken() {
+        return JWTUtil.generateToken(user);
+    }
+    
+    @Benchmark
+    public boolean validateToken() {
+        return JWTUtil.validateToken(token);
+    }
+    
+    @Benchmark
+    public Claims getClaimsFromToken() {
+        return JWTUtil.getClaimsFromToken(token);
+    }
+}
@@ -0,0 +1,39 @@
+package com.library.benchmark;
+
+import com.library.security.PasswordUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BCrypt verification, the dominant cost of a login
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PasswordBenchmark {
+    
+    private String hash;
+    
+    @Setup
+    public void setUp() {
+        hash = PasswordUtil.hashPassword(BenchmarkDatabase.PASSWORD);
+    }
+    
+    @Benchmark
+    public boolean verifyPassword() {
+        return PasswordUtil.verifyPassword(BenchmarkDatabase.PASSWORD, hash);
+    }
+}
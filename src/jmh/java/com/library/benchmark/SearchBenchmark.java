@@ -0,0 +1,68 @@
+package com.library.benchmark;
+
+import com.library.dao.BookDAO;
+import com.library.dto.BookDTO;
+import com.library.entity.Book;
+import com.library.search.BookSearchIndex;
+import com.library.service.BookService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog search: the LIKE query in BookDAO against the in-memory index behind BookService
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SearchBenchmark {
+    
+    @Param({"river", "silver tower", "Marquez"})
+    public String term;
+    
+    private BookDAO bookDAO;
+    private BookService bookService;
+    
+    @Setup
+    public void setUp() throws InterruptedException {
+        BenchmarkDatabase.init();
+        bookDAO = new BookDAO();
+        bookService = new BookService();
+        
+        BookSearchIndex index = BookSearchIndex.getInstance();
+        index.buildAsync();
+        while (!index.isReady()) {
+            Thread.sleep(50);
+        }
+    }
+    
+    @Benchmark
+    public List<Book> databaseSearch() {
+        return bookDAO.searchBooks(term);
+    }
+    
+    @Benchmark
+    public List<BookDTO> indexedSearch() {
+        return bookService.searchBooks(term);
+    }
+    
+    @Benchmark
+    public List<Map<String, Object>> suggest() {
+        return bookService.suggest(term.substring(0, 3), 10);
+    }
+}
@@ -1,11 +1,14 @@
 package com.library.dao;
 
+import com.library.dto.AuthorDTO;
 import com.library.entity.Author;
-import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DAO class for Author entity operations
@@ -20,14 +23,14 @@ public class AuthorDAO extends GenericDAO<Author, Long> {
      * Find authors by name
      */
     public List<Author> findByName(String authorName) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Author> query = em.createQuery(
                 "SELECT a FROM Author a WHERE LOWER(a.authorName) LIKE LOWER(:name)", Author.class);
             query.setParameter("name", "%" + authorName + "%");
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -35,14 +38,14 @@ public class AuthorDAO extends GenericDAO<Author, Long> {
      * Find authors by nationality
      */
     public List<Author> findByNationality(String nationality) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Author> query = em.createQuery(
                 "SELECT a FROM Author a WHERE a.nationality = :nationality", Author.class);
             query.setParameter("nationality", nationality);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -50,7 +53,7 @@ public class AuthorDAO extends GenericDAO<Author, Long> {
      * Search authors
      */
     public List<Author> searchAuthors(String searchTerm) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Author> query = em.createQuery(
                 "SELECT a FROM Author a WHERE " +
@@ -60,7 +63,7 @@ public class AuthorDAO extends GenericDAO<Author, Long> {
             query.setParameter("term", "%" + searchTerm + "%");
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -68,13 +71,13 @@ public class AuthorDAO extends GenericDAO<Author, Long> {
      * Get authors with book count
      */
     public List<Object[]> getAuthorsWithBookCount() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Object[]> query = em.createQuery(
                 "SELECT a, COUNT(b) FROM Author a LEFT JOIN a.books b GROUP BY a ORDER BY a.authorName", Object[].class);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -82,15 +85,40 @@ public class AuthorDAO extends GenericDAO<Author, Long> {
      * Get popular authors (most books)
      */
     public List<Author> getPopularAuthors(int limit) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Author> query = em.createQuery(
                 "SELECT a FROM Author a LEFT JOIN a.books b GROUP BY a ORDER BY COUNT(b) DESC", Author.class);
             query.setMaxResults(limit);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Pass the ID and name of every author to an action in ID order, without loading entities
+     */
+    public void forEachIdAndName(Consumer<AuthorDTO> action) {
+        scroll("SELECT new com.library.dto.AuthorDTO(a.authorId, a.authorName) FROM Author a ORDER BY a.authorId",
+            AuthorDTO.class, action);
+    }
+    
+    /**
+     * Find authors by ID
+     */
+    public List<Author> findByIds(Collection<Long> authorIds) {
+        if (authorIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<Author> query = em.createQuery(
+                "SELECT a FROM Author a WHERE a.authorId IN :ids", Author.class);
+            query.setParameter("ids", authorIds);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
         }
     }
 }
-
@@ -1,20 +1,43 @@
 package com.library.dao;
 
+import com.library.dto.AuthorDTO;
+import com.library.dto.BookDTO;
 import com.library.entity.Book;
 import com.library.entity.Category;
 import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * DAO class for Book entity operations
  */
 public class BookDAO extends GenericDAO<Book, Long> {
     
+    // Upper bound on the number of ids bound to one IN clause when fetching authors
+    private static final int FETCH_CHUNK_SIZE = 500;
+    
+    // Selects BookDTO views (without authors) directly, without loading Book entities
+    private static final String SELECT_DTO =
+        "SELECT new com.library.dto.BookDTO(b.bookId, b.isbn, b.title, b.subtitle, b.publisher, " +
+        "b.publicationDate, b.edition, b.language, b.pages, b.description, b.coverImageUrl, " +
+        "b.totalCopies, b.availableCopies, b.status, c.categoryId, c.categoryName) " +
+        "FROM Book b LEFT JOIN b.category c ";
+    
     public BookDAO() {
         super(Book.class);
     }
@@ -23,7 +46,7 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Find book by ISBN
      */
     public Optional<Book> findByIsbn(String isbn) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT b FROM Book b WHERE b.isbn = :isbn", Book.class);
@@ -32,7 +55,25 @@ public class BookDAO extends GenericDAO<Book, Long> {
         } catch (NoResultException e) {
             return Optional.empty();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find which of the given ISBNs are already in the catalog
+     */
+    public Set<String> findExistingIsbns(Collection<String> isbns) {
+        if (isbns.isEmpty()) {
+            return new HashSet<>();
+        }
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<String> query = em.createQuery(
+                "SELECT b.isbn FROM Book b WHERE b.isbn IN :isbns", String.class);
+            query.setParameter("isbns", isbns);
+            return new HashSet<>(query.getResultList());
+        } finally {
+            closeEntityManager(em);
         }
     }
     
@@ -40,14 +81,14 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Find books by category
      */
     public List<Book> findByCategory(Long categoryId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT b FROM Book b WHERE b.category.categoryId = :categoryId", Book.class);
             query.setParameter("categoryId", categoryId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -55,14 +96,14 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Find books by status
      */
     public List<Book> findByStatus(Book.BookStatus status) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT b FROM Book b WHERE b.status = :status", Book.class);
             query.setParameter("status", status);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -70,14 +111,14 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Find available books
      */
     public List<Book> findAvailableBooks() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT b FROM Book b WHERE b.availableCopies > 0 AND b.status = :status", Book.class);
             query.setParameter("status", Book.BookStatus.AVAILABLE);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -85,7 +126,7 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Search books by title, author, ISBN, or description
      */
     public List<Book> searchBooks(String searchTerm) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT DISTINCT b FROM Book b LEFT JOIN b.authors a WHERE " +
@@ -98,7 +139,7 @@ public class BookDAO extends GenericDAO<Book, Long> {
             query.setParameter("term", "%" + searchTerm + "%");
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -106,14 +147,14 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Find books by author
      */
     public List<Book> findByAuthor(Long authorId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT DISTINCT b FROM Book b JOIN b.authors a WHERE a.authorId = :authorId", Book.class);
             query.setParameter("authorId", authorId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -121,7 +162,7 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Get most borrowed books
      */
     public List<Book> getMostBorrowedBooks(int limit) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT b FROM Book b LEFT JOIN b.borrowingRecords br " +
@@ -129,7 +170,7 @@ public class BookDAO extends GenericDAO<Book, Long> {
             query.setMaxResults(limit);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -137,14 +178,14 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Get recently added books
      */
     public List<Book> getRecentlyAddedBooks(int limit) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT b FROM Book b ORDER BY b.createdAt DESC", Book.class);
             query.setMaxResults(limit);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -152,28 +193,254 @@ public class BookDAO extends GenericDAO<Book, Long> {
      * Count available books
      */
     public long countAvailableBooks() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Long> query = em.createQuery(
                 "SELECT COUNT(b) FROM Book b WHERE b.availableCopies > 0 AND b.status = :status", Long.class);
             query.setParameter("status", Book.BookStatus.AVAILABLE);
             return query.getSingleResult();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Atomically take one copy of a book, only if a copy is available
+     * @return true if a copy was taken, false if none was available
+     */
+    public boolean decrementAvailableCopies(Long bookId) {
+        return updateBooksTable(
+            "UPDATE books SET available_copies = available_copies - 1, version = version + 1, updated_at = ?1 " +
+            "WHERE book_id = ?2 AND available_copies > 0 AND status = ?3",
+            LocalDateTime.now(), bookId, Book.BookStatus.AVAILABLE.name()) == 1;
+    }
+    
+    /**
+     * Atomically put one copy of a book back, never exceeding the total number of copies
+     * @return true if the count was incremented
+     */
+    public boolean incrementAvailableCopies(Long bookId) {
+        return updateBooksTable(
+            "UPDATE books SET available_copies = available_copies + 1, version = version + 1, updated_at = ?1 " +
+            "WHERE book_id = ?2 AND available_copies < total_copies",
+            LocalDateTime.now(), bookId) == 1;
+    }
+    
+    /**
+     * Run a native update of the books table, declaring it as the only table touched, so
+     * Hibernate's bulk-update cleanup is limited to the Book space and leaves other cache
+     * regions (such as the book-authors collections) warm on the checkout path
+     */
+    private int updateBooksTable(String sql, Object... params) {
+        return executeInTransaction(em -> {
+            NativeQuery<?> query = em.createNativeQuery(sql).unwrap(NativeQuery.class);
+            query.addSynchronizedEntityClass(Book.class);
+            for (int i = 0; i < params.length; i++) {
+                query.setParameter(i + 1, params[i]);
+            }
+            return query.executeUpdate();
+        }, "Error updating books");
+    }
+    
+    /**
+     * Search books by title, author, ISBN, or description with category and authors loaded
+     */
+    public List<Book> searchBooksWithDetails(String searchTerm) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<Book> query = em.createQuery(
+                "SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.category LEFT JOIN b.authors a WHERE " +
+                "LOWER(b.title) LIKE LOWER(:term) OR " +
+                "LOWER(b.subtitle) LIKE LOWER(:term) OR " +
+                "LOWER(b.isbn) LIKE LOWER(:term) OR " +
+                "LOWER(b.publisher) LIKE LOWER(:term) OR " +
+                "LOWER(b.description) LIKE LOWER(:term) OR " +
+                "LOWER(a.authorName) LIKE LOWER(:term)", Book.class);
+            query.setParameter("term", "%" + searchTerm + "%");
+            return fetchAuthors(em, query.getResultList());
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find the next page of books in ID order with category and authors loaded
+     * @param afterId ID of the last book of the previous page, or null for the first page
+     */
+    public List<Book> findPageWithDetails(Long afterId, int limit) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<Book> query = em.createQuery(
+                "SELECT b FROM Book b LEFT JOIN FETCH b.category " +
+                (afterId != null ? "WHERE b.bookId > :afterId " : "") +
+                "ORDER BY b.bookId", Book.class);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+            }
+            query.setMaxResults(limit);
+            return fetchAuthors(em, query.getResultList());
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find the next page of book views in ID order
+     * @param afterId ID of the last book of the previous page, or null for the first page
+     */
+    public List<BookDTO> findDTOPageAfter(Long afterId, int limit) {
+        EntityManager em = getEntityManager();
+        try {
+            return findDTOPageAfter(em, afterId, limit);
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Pass every book view to an action in ID order, reading chunks on a dedicated EntityManager
+     */
+    public void forEachDTO(Consumer<BookDTO> action) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            Long afterId = null;
+            List<BookDTO> chunk;
+            do {
+                chunk = findDTOPageAfter(em, afterId, FETCH_CHUNK_SIZE);
+                chunk.forEach(action);
+                if (!chunk.isEmpty()) {
+                    afterId = chunk.get(chunk.size() - 1).getBookId();
+                }
+            } while (chunk.size() == FETCH_CHUNK_SIZE);
         } finally {
             em.close();
         }
     }
     
+    /**
+     * Find views of available books
+     */
+    public List<BookDTO> findAvailableDTOs() {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BookDTO> query = em.createQuery(SELECT_DTO +
+                "WHERE b.availableCopies > 0 AND b.status = :status", BookDTO.class);
+            query.setParameter("status", Book.BookStatus.AVAILABLE);
+            return withAuthors(em, query.getResultList());
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find views of the books in a category
+     */
+    public List<BookDTO> findDTOsByCategory(Long categoryId) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BookDTO> query = em.createQuery(SELECT_DTO +
+                "WHERE c.categoryId = :categoryId", BookDTO.class);
+            query.setParameter("categoryId", categoryId);
+            return withAuthors(em, query.getResultList());
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find book views by ID, in the order of the given IDs
+     */
+    public List<BookDTO> findDTOsByIds(List<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BookDTO> query = em.createQuery(SELECT_DTO + "WHERE b.bookId IN :ids", BookDTO.class);
+            query.setParameter("ids", bookIds);
+            Map<Long, BookDTO> byId = withAuthors(em, query.getResultList()).stream()
+                .collect(Collectors.toMap(BookDTO::getBookId, Function.identity()));
+            
+            List<BookDTO> books = new ArrayList<>(bookIds.size());
+            for (Long bookId : bookIds) {
+                BookDTO book = byId.get(bookId);
+                if (book != null) {
+                    books.add(book);
+                }
+            }
+            return books;
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    private List<BookDTO> findDTOPageAfter(EntityManager em, Long afterId, int limit) {
+        TypedQuery<BookDTO> query = em.createQuery(SELECT_DTO +
+            (afterId != null ? "WHERE b.bookId > :afterId " : "") +
+            "ORDER BY b.bookId", BookDTO.class);
+        if (afterId != null) {
+            query.setParameter("afterId", afterId);
+        }
+        query.setMaxResults(limit);
+        return withAuthors(em, query.getResultList());
+    }
+    
+    /**
+     * Attach authors to book views with one scalar query per chunk of ids
+     */
+    private List<BookDTO> withAuthors(EntityManager em, List<BookDTO> books) {
+        Map<Long, List<AuthorDTO>> authorsByBook = new HashMap<>();
+        for (int from = 0; from < books.size(); from += FETCH_CHUNK_SIZE) {
+            List<Long> ids = books.subList(from, Math.min(from + FETCH_CHUNK_SIZE, books.size())).stream()
+                .map(BookDTO::getBookId)
+                .collect(Collectors.toList());
+            List<Object[]> rows = em.createQuery(
+                "SELECT b.bookId, a.authorId, a.authorName FROM Book b JOIN b.authors a WHERE b.bookId IN :ids",
+                Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+            for (Object[] row : rows) {
+                authorsByBook.computeIfAbsent((Long) row[0], id -> new ArrayList<>())
+                    .add(new AuthorDTO((Long) row[1], (String) row[2]));
+            }
+        }
+        
+        List<BookDTO> result = new ArrayList<>(books.size());
+        for (BookDTO book : books) {
+            List<AuthorDTO> authors = authorsByBook.get(book.getBookId());
+            result.add(authors != null ? book.withAuthors(authors) : book);
+        }
+        return result;
+    }
+    
+    /**
+     * Initialize the authors of the given managed books with one query per chunk of ids,
+     * instead of one lazy load per book
+     */
+    private List<Book> fetchAuthors(EntityManager em, List<Book> books) {
+        for (int from = 0; from < books.size(); from += FETCH_CHUNK_SIZE) {
+            List<Long> ids = books.subList(from, Math.min(from + FETCH_CHUNK_SIZE, books.size())).stream()
+                .map(Book::getBookId)
+                .collect(Collectors.toList());
+            em.createQuery(
+                "SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.authors WHERE b.bookId IN :ids", Book.class)
+                .setParameter("ids", ids)
+                .getResultList();
+        }
+        return books;
+    }
+    
     /**
      * Get books with reviews
      */
     public List<Book> getBooksWithReviews() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Book> query = em.createQuery(
                 "SELECT DISTINCT b FROM Book b LEFT JOIN FETCH b.reviews WHERE SIZE(b.reviews) > 0", Book.class);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
 }
@@ -1,27 +1,130 @@
 package com.library.dao;
 
+import com.library.dto.BorrowingRecordDTO;
 import com.library.entity.BorrowingRecord;
-import com.library.util.JPAUtil;
+import com.library.entity.User;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * DAO class for BorrowingRecord entity operations
  */
 public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
     
+    // Selects BorrowingRecordDTO views with borrower and book columns in one join
+    private static final String SELECT_DTO =
+        "SELECT new com.library.dto.BorrowingRecordDTO(br.recordId, br.borrowDate, br.dueDate, br.returnDate, " +
+        "br.status, br.fineAmount, br.notes, u.userId, u.username, u.firstName, u.lastName, " +
+        "b.bookId, b.title, b.isbn) FROM BorrowingRecord br JOIN br.user u JOIN br.book b ";
+    
     public BorrowingRecordDAO() {
         super(BorrowingRecord.class);
     }
     
+    /**
+     * Pass every borrowing record view to an action in ID order
+     */
+    public void forEachDTO(Consumer<BorrowingRecordDTO> action) {
+        scroll(SELECT_DTO + "ORDER BY br.recordId", BorrowingRecordDTO.class, action);
+    }
+    
+    /**
+     * Find borrowing record views of a user, newest first
+     */
+    public List<BorrowingRecordDTO> findDTOsByUser(Long userId) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BorrowingRecordDTO> query = em.createQuery(SELECT_DTO +
+                "WHERE u.userId = :userId ORDER BY br.borrowDate DESC", BorrowingRecordDTO.class);
+            query.setParameter("userId", userId);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find views of a user's active (borrowed or overdue) borrowings, earliest due first
+     */
+    public List<BorrowingRecordDTO> findActiveDTOsByUser(Long userId) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BorrowingRecordDTO> query = em.createQuery(SELECT_DTO +
+                "WHERE u.userId = :userId AND br.status IN (:borrowed, :overdue) ORDER BY br.dueDate",
+                BorrowingRecordDTO.class);
+            query.setParameter("userId", userId);
+            query.setParameter("borrowed", BorrowingRecord.BorrowStatus.BORROWED);
+            query.setParameter("overdue", BorrowingRecord.BorrowStatus.OVERDUE);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find views of overdue borrowings, earliest due first (flagged by OverdueJob)
+     */
+    public List<BorrowingRecordDTO> findOverdueDTOs() {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BorrowingRecordDTO> query = em.createQuery(SELECT_DTO +
+                "WHERE br.status = :status ORDER BY br.dueDate", BorrowingRecordDTO.class);
+            query.setParameter("status", BorrowingRecord.BorrowStatus.OVERDUE);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find borrowing record views by status, newest first
+     */
+    public List<BorrowingRecordDTO> findDTOsByStatus(BorrowingRecord.BorrowStatus status) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BorrowingRecordDTO> query = em.createQuery(SELECT_DTO +
+                "WHERE br.status = :status ORDER BY br.borrowDate DESC", BorrowingRecordDTO.class);
+            query.setParameter("status", status);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find the next page of borrowing record views, newest first (keyset pagination on borrow date and ID)
+     * @param beforeDate borrow date of the last record of the previous page, or null for the first page
+     * @param beforeId ID of the last record of the previous page
+     */
+    public List<BorrowingRecordDTO> findDTOPageBefore(LocalDateTime beforeDate, Long beforeId, int limit) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<BorrowingRecordDTO> query = em.createQuery(SELECT_DTO +
+                (beforeDate != null
+                    ? "WHERE br.borrowDate < :beforeDate OR (br.borrowDate = :beforeDate AND br.recordId < :beforeId) "
+                    : "") +
+                "ORDER BY br.borrowDate DESC, br.recordId DESC", BorrowingRecordDTO.class);
+            if (beforeDate != null) {
+                query.setParameter("beforeDate", beforeDate);
+                query.setParameter("beforeId", beforeId);
+            }
+            query.setMaxResults(limit);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
     /**
      * Find borrowing records by user
      */
     public List<BorrowingRecord> findByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BorrowingRecord> query = em.createQuery(
                 "SELECT br FROM BorrowingRecord br WHERE br.user.userId = :userId ORDER BY br.borrowDate DESC", 
@@ -29,7 +132,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setParameter("userId", userId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -37,7 +140,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
      * Find borrowing records by book
      */
     public List<BorrowingRecord> findByBook(Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BorrowingRecord> query = em.createQuery(
                 "SELECT br FROM BorrowingRecord br WHERE br.book.bookId = :bookId ORDER BY br.borrowDate DESC", 
@@ -45,7 +148,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setParameter("bookId", bookId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -53,7 +156,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
      * Find active borrowings by user
      */
     public List<BorrowingRecord> findActiveBorrowingsByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BorrowingRecord> query = em.createQuery(
                 "SELECT br FROM BorrowingRecord br WHERE br.user.userId = :userId " +
@@ -64,26 +167,73 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setParameter("overdue", BorrowingRecord.BorrowStatus.OVERDUE);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
     /**
-     * Find overdue borrowings
+     * Find overdue borrowings (flagged by OverdueJob)
      */
     public List<BorrowingRecord> findOverdueBorrowings() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BorrowingRecord> query = em.createQuery(
-                "SELECT br FROM BorrowingRecord br WHERE " +
-                "br.status = :status OR (br.status = :borrowed AND br.dueDate < :now)", 
+                "SELECT br FROM BorrowingRecord br WHERE br.status = :status ORDER BY br.dueDate", 
                 BorrowingRecord.class);
             query.setParameter("status", BorrowingRecord.BorrowStatus.OVERDUE);
-            query.setParameter("borrowed", BorrowingRecord.BorrowStatus.BORROWED);
-            query.setParameter("now", LocalDateTime.now());
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Flag up to limit borrowed records that were due before the given time as overdue, earliest
+     * due first. The candidates come from the (status, due_date) index and are flipped with one
+     * bulk update in a single transaction.
+     * @return number of records flagged; 0 once no borrowed record is past due
+     */
+    public int markOverdueBatch(LocalDateTime dueBefore, int limit) {
+        return executeInTransaction(em -> {
+            List<Long> ids = em.createQuery(
+                "SELECT br.recordId FROM BorrowingRecord br WHERE br.status = :borrowed " +
+                "AND br.dueDate < :dueBefore ORDER BY br.dueDate", Long.class)
+                .setParameter("borrowed", BorrowingRecord.BorrowStatus.BORROWED)
+                .setParameter("dueBefore", dueBefore)
+                .setMaxResults(limit)
+                .getResultList();
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            // The status condition skips records returned since the select
+            return em.createQuery(
+                "UPDATE BorrowingRecord br SET br.status = :overdue, br.updatedAt = :now, " +
+                "br.version = br.version + 1 WHERE br.recordId IN :ids AND br.status = :borrowed")
+                .setParameter("overdue", BorrowingRecord.BorrowStatus.OVERDUE)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("ids", ids)
+                .setParameter("borrowed", BorrowingRecord.BorrowStatus.BORROWED)
+                .executeUpdate();
+        }, "Error flagging overdue borrowings");
+    }
+    
+    /**
+     * Find the next batch of overdue records in ID order, as {record ID, user ID, due date} rows
+     * (keyset pagination on ID)
+     */
+    public List<Object[]> findOverdueAfter(Long afterId, int limit) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<Object[]> query = em.createQuery(
+                "SELECT br.recordId, br.user.userId, br.dueDate FROM BorrowingRecord br " +
+                "WHERE br.status = :status AND br.recordId > :afterId ORDER BY br.recordId", 
+                Object[].class);
+            query.setParameter("status", BorrowingRecord.BorrowStatus.OVERDUE);
+            query.setParameter("afterId", afterId);
+            query.setMaxResults(limit);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
         }
     }
     
@@ -91,7 +241,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
      * Find borrowings by status
      */
     public List<BorrowingRecord> findByStatus(BorrowingRecord.BorrowStatus status) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BorrowingRecord> query = em.createQuery(
                 "SELECT br FROM BorrowingRecord br WHERE br.status = :status ORDER BY br.borrowDate DESC", 
@@ -99,7 +249,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setParameter("status", status);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -107,7 +257,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
      * Get borrowing statistics
      */
     public Object[] getBorrowingStatistics() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Object[]> query = em.createQuery(
                 "SELECT " +
@@ -122,7 +272,21 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setParameter("returned", BorrowingRecord.BorrowStatus.RETURNED);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Count borrowing records per status, as {status, count} rows
+     */
+    public List<Object[]> countByStatus() {
+        EntityManager em = getEntityManager();
+        try {
+            return em.createQuery(
+                "SELECT br.status, COUNT(br) FROM BorrowingRecord br GROUP BY br.status", Object[].class)
+                .getResultList();
+        } finally {
+            closeEntityManager(em);
         }
     }
     
@@ -130,7 +294,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
      * Count active borrowings by user
      */
     public long countActiveBorrowingsByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Long> query = em.createQuery(
                 "SELECT COUNT(br) FROM BorrowingRecord br WHERE br.user.userId = :userId " +
@@ -141,7 +305,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setParameter("overdue", BorrowingRecord.BorrowStatus.OVERDUE);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -149,7 +313,7 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
      * Get recent borrowings
      */
     public List<BorrowingRecord> getRecentBorrowings(int limit) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BorrowingRecord> query = em.createQuery(
                 "SELECT br FROM BorrowingRecord br ORDER BY br.borrowDate DESC", 
@@ -157,8 +321,19 @@ public class BorrowingRecordDAO extends GenericDAO<BorrowingRecord, Long> {
             query.setMaxResults(limit);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
+    
+    /**
+     * Atomically mark a borrowing record as returned, only if it has not been returned yet
+     * @return true if the record was updated, false if it was already returned
+     */
+    public boolean markReturned(Long recordId, LocalDateTime returnDate, BigDecimal fineAmount, User returnedTo) {
+        return executeUpdate(
+            "UPDATE BorrowingRecord br SET br.status = ?1, br.returnDate = ?2, br.fineAmount = ?3, " +
+            "br.returnedTo = ?4, br.updatedAt = ?5, br.version = br.version + 1 WHERE br.recordId = ?6 AND br.status <> ?1",
+            BorrowingRecord.BorrowStatus.RETURNED, returnDate, fineAmount, returnedTo,
+            LocalDateTime.now(), recordId) == 1;
+    }
 }
-
@@ -1,7 +1,6 @@
 package com.library.dao;
 
 import com.library.entity.Category;
-import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
@@ -22,7 +21,7 @@ public class CategoryDAO extends GenericDAO<Category, Long> {
      * Find category by name
      */
     public Optional<Category> findByName(String categoryName) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Category> query = em.createQuery(
                 "SELECT c FROM Category c WHERE c.categoryName = :name", Category.class);
@@ -31,7 +30,7 @@ public class CategoryDAO extends GenericDAO<Category, Long> {
         } catch (NoResultException e) {
             return Optional.empty();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -39,7 +38,7 @@ public class CategoryDAO extends GenericDAO<Category, Long> {
      * Search categories by name
      */
     public List<Category> searchCategories(String searchTerm) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Category> query = em.createQuery(
                 "SELECT c FROM Category c WHERE " +
@@ -48,7 +47,7 @@ public class CategoryDAO extends GenericDAO<Category, Long> {
             query.setParameter("term", "%" + searchTerm + "%");
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -56,13 +55,13 @@ public class CategoryDAO extends GenericDAO<Category, Long> {
      * Get categories with book count
      */
     public List<Object[]> getCategoriesWithBookCount() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Object[]> query = em.createQuery(
                 "SELECT c, COUNT(b) FROM Category c LEFT JOIN c.books b GROUP BY c ORDER BY c.categoryName", Object[].class);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -1,12 +1,18 @@
 package com.library.dao;
 
+import com.library.dto.FineDTO;
 import com.library.entity.Fine;
-import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.TypedQuery;
+import org.hibernate.query.NativeQuery;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
  * DAO class for Fine entity operations
@@ -17,11 +23,20 @@ public class FineDAO extends GenericDAO<Fine, Long> {
         super(Fine.class);
     }
     
+    /**
+     * Pass every fine view to an action in ID order
+     */
+    public void forEachDTO(Consumer<FineDTO> action) {
+        scroll("SELECT new com.library.dto.FineDTO(f.fineId, br.recordId, u.userId, u.username, f.fineAmount, " +
+            "f.fineReason, f.fineDate, f.paymentDate, f.status, f.paymentMethod) " +
+            "FROM Fine f JOIN f.borrowingRecord br JOIN f.user u ORDER BY f.fineId", FineDTO.class, action);
+    }
+    
     /**
      * Find fines by user
      */
     public List<Fine> findByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Fine> query = em.createQuery(
                 "SELECT f FROM Fine f WHERE f.user.userId = :userId ORDER BY f.fineDate DESC", 
@@ -29,7 +44,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             query.setParameter("userId", userId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -37,7 +52,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
      * Find pending fines by user
      */
     public List<Fine> findPendingFinesByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Fine> query = em.createQuery(
                 "SELECT f FROM Fine f WHERE f.user.userId = :userId " +
@@ -47,7 +62,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             query.setParameter("status", Fine.FineStatus.PENDING);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -55,7 +70,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
      * Find fines by status
      */
     public List<Fine> findByStatus(Fine.FineStatus status) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Fine> query = em.createQuery(
                 "SELECT f FROM Fine f WHERE f.status = :status ORDER BY f.fineDate DESC", 
@@ -63,7 +78,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             query.setParameter("status", status);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -71,7 +86,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
      * Get total pending fines for a user
      */
     public BigDecimal getTotalPendingFinesByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<BigDecimal> query = em.createQuery(
                 "SELECT COALESCE(SUM(f.fineAmount), 0) FROM Fine f " +
@@ -82,7 +97,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             BigDecimal result = query.getSingleResult();
             return result != null ? result : BigDecimal.ZERO;
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -90,7 +105,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
      * Get all pending fines
      */
     public List<Fine> getAllPendingFines() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Fine> query = em.createQuery(
                 "SELECT f FROM Fine f WHERE f.status = :status ORDER BY f.fineDate", 
@@ -98,7 +113,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             query.setParameter("status", Fine.FineStatus.PENDING);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -106,7 +121,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
      * Count pending fines by user
      */
     public long countPendingFinesByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Long> query = em.createQuery(
                 "SELECT COUNT(f) FROM Fine f WHERE f.user.userId = :userId " +
@@ -116,7 +131,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             query.setParameter("status", Fine.FineStatus.PENDING);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -124,7 +139,7 @@ public class FineDAO extends GenericDAO<Fine, Long> {
      * Get fine statistics
      */
     public Object[] getFineStatistics() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Object[]> query = em.createQuery(
                 "SELECT " +
@@ -138,8 +153,172 @@ public class FineDAO extends GenericDAO<Fine, Long> {
             query.setParameter("paid", Fine.FineStatus.PAID);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Count fines and sum their amounts per status, as {status, count, amount} rows
+     */
+    public List<Object[]> sumByStatus() {
+        EntityManager em = getEntityManager();
+        try {
+            return em.createQuery(
+                "SELECT f.status, COUNT(f), SUM(f.fineAmount) FROM Fine f GROUP BY f.status",
+                Object[].class).getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Create or refresh the fines of a batch of borrowing records in one transaction.
+     * A record's pending fine gets the new amount and reason, a record without a fine gets
+     * a new one; paid and waived fines are left alone. A record has at most one fine
+     * (unique record_id), so a concurrent upsert of the same record cannot add a second one.
+     */
+    public UpsertResult upsertFines(List<Charge> charges) {
+        if (charges.isEmpty()) {
+            return new UpsertResult(0, 0, BigDecimal.ZERO);
+        }
+        return executeInTransaction(em -> {
+            Map<Long, Charge> byRecord = new HashMap<>();
+            for (Charge charge : charges) {
+                byRecord.put(charge.getRecordId(), charge);
+            }
+            
+            List<Fine> existing = em.createQuery(
+                "SELECT f FROM Fine f WHERE f.borrowingRecord.recordId IN :ids", Fine.class)
+                .setParameter("ids", byRecord.keySet())
+                .getResultList();
+            int created = 0;
+            int updated = 0;
+            BigDecimal amountChange = BigDecimal.ZERO;
+            for (Fine fine : existing) {
+                Charge charge = byRecord.remove(fine.getBorrowingRecord().getRecordId());
+                BigDecimal change = charge != null ? applyCharge(fine, charge) : null;
+                if (change != null) {
+                    amountChange = amountChange.add(change);
+                    updated++;
+                }
+            }
+            
+            for (Charge charge : byRecord.values()) {
+                if (insertIfAbsent(em, charge)) {
+                    amountChange = amountChange.add(charge.getAmount());
+                    created++;
+                    continue;
+                }
+                // Another transaction inserted the fine since it was read above. A locking read
+                // returns the committed row, which a plain read may not see yet.
+                Fine fine = em.createQuery(
+                    "SELECT f FROM Fine f WHERE f.borrowingRecord.recordId = :id", Fine.class)
+                    .setParameter("id", charge.getRecordId())
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .getSingleResult();
+                BigDecimal change = applyCharge(fine, charge);
+                if (change != null) {
+                    amountChange = amountChange.add(change);
+                    updated++;
+                }
+            }
+            return new UpsertResult(created, updated, amountChange);
+        }, "Error updating fines");
+    }
+    
+    /**
+     * Set a pending fine to the charged amount
+     * @return the change in amount, or null if the fine was left alone
+     */
+    private BigDecimal applyCharge(Fine fine, Charge charge) {
+        if (fine.getStatus() != Fine.FineStatus.PENDING || fine.getFineAmount().compareTo(charge.getAmount()) == 0) {
+            return null;
+        }
+        BigDecimal change = charge.getAmount().subtract(fine.getFineAmount());
+        fine.setFineAmount(charge.getAmount());
+        fine.setFineReason(charge.getReason());
+        return change;
+    }
+    
+    /**
+     * Insert a pending fine unless the record already has one
+     * @return true if the fine was inserted
+     */
+    private boolean insertIfAbsent(EntityManager em, Charge charge) {
+        LocalDateTime now = LocalDateTime.now();
+        NativeQuery<?> query = em.createNativeQuery(
+            "INSERT IGNORE INTO fines (record_id, user_id, fine_amount, fine_reason, fine_date, status, version, " +
+            "created_at, updated_at) VALUES (?1, ?2, ?3, ?4, ?5, ?6, 0, ?5, ?5)").unwrap(NativeQuery.class);
+        query.addSynchronizedEntityClass(Fine.class);
+        query.setParameter(1, charge.getRecordId());
+        query.setParameter(2, charge.getUserId());
+        query.setParameter(3, charge.getAmount());
+        query.setParameter(4, charge.getReason());
+        query.setParameter(5, now);
+        query.setParameter(6, Fine.FineStatus.PENDING.name());
+        return query.executeUpdate() == 1;
+    }
+    
+    /**
+     * Fine owed for one borrowing record
+     */
+    public static final class Charge {
+        private final Long recordId;
+        private final Long userId;
+        private final BigDecimal amount;
+        private final String reason;
+        
+        public Charge(Long recordId, Long userId, BigDecimal amount, String reason) {
+            this.recordId = recordId;
+            this.userId = userId;
+            this.amount = amount;
+            this.reason = reason;
+        }
+        
+        public Long getRecordId() {
+            return recordId;
+        }
+        
+        public Long getUserId() {
+            return userId;
+        }
+        
+        public BigDecimal getAmount() {
+            return amount;
+        }
+        
+        public String getReason() {
+            return reason;
+        }
+    }
+    
+    /**
+     * Outcome of upsertFines
+     */
+    public static final class UpsertResult {
+        private final int created;
+        private final int updated;
+        private final BigDecimal amountChange;
+        
+        public UpsertResult(int created, int updated, BigDecimal amountChange) {
+            this.created = created;
+            this.updated = updated;
+            this.amountChange = amountChange;
+        }
+        
+        public int getCreated() {
+            return created;
+        }
+        
+        public int getUpdated() {
+            return updated;
+        }
+        
+        /**
+         * Change of the total pending amount: new fines plus the difference on updated ones
+         */
+        public BigDecimal getAmountChange() {
+            return amountChange;
         }
     }
 }
-
@@ -2,14 +2,25 @@ package com.library.dao;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.OptimisticLockException;
 import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
 import jakarta.persistence.criteria.Root;
 import com.library.util.JPAUtil;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Generic DAO class providing common CRUD operations
@@ -18,6 +29,13 @@ import java.util.Optional;
  */
 public abstract class GenericDAO<T, ID> {
     
+    // Rows passed to a scroll action between persistence context clears
+    private static final int SCROLL_CLEAR_INTERVAL = 500;
+    
+    // Attempts made by updateWithRetry before giving up on a contended row
+    private static final int MAX_UPDATE_ATTEMPTS = JPAUtil.getIntConfig("db.optimisticLock.maxAttempts", 5);
+    private static final long RETRY_BACKOFF_MILLIS = JPAUtil.getIntConfig("db.optimisticLock.backoffMs", 20);
+    
     protected Class<T> entityClass;
     
     public GenericDAO(Class<T> entityClass) {
@@ -28,45 +46,130 @@ public abstract class GenericDAO<T, ID> {
      * Save a new entity
      */
     public T save(T entity) {
-        EntityManager em = JPAUtil.getEntityManager();
-        EntityTransaction transaction = null;
-        
-        try {
-            transaction = em.getTransaction();
-            transaction.begin();
+        return executeInTransaction(em -> {
             em.persist(entity);
-            transaction.commit();
             return entity;
-        } catch (Exception e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();
-            }
-            throw new RuntimeException("Error saving entity: " + e.getMessage(), e);
-        } finally {
-            em.close();
-        }
+        }, "Error saving entity");
     }
     
     /**
      * Update an existing entity
      */
     public T update(T entity) {
-        EntityManager em = JPAUtil.getEntityManager();
-        EntityTransaction transaction = null;
-        
-        try {
-            transaction = em.getTransaction();
-            transaction.begin();
-            T mergedEntity = em.merge(entity);
-            transaction.commit();
-            return mergedEntity;
-        } catch (Exception e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();
+        return executeInTransaction(em -> em.merge(entity), "Error updating entity");
+    }
+    
+    /**
+     * Save new entities in one transaction. Inserts go out in JDBC batches of
+     * hibernate.jdbc.batch_size, and the persistence context is cleared after each batch
+     * so memory stays flat however many entities are saved. Inside a unit of work the
+     * request transaction is joined and flushed per batch, but not cleared.
+     * @return the saved entities, with generated IDs
+     */
+    public List<T> saveAll(Collection<T> entities) {
+        return writeInBatches(entities, (em, entity) -> {
+            em.persist(entity);
+            return entity;
+        }, "Error saving entities");
+    }
+    
+    /**
+     * Merge changes to detached entities in one transaction, batched like saveAll.
+     * Merging works whether or not the persistence context already holds a copy, as it
+     * does inside a unit of work; versioned entities still fail with an optimistic lock
+     * exception if the row changed since they were read.
+     * @return the merged entities
+     */
+    public List<T> updateAll(Collection<T> entities) {
+        return writeInBatches(entities, EntityManager::merge, "Error updating entities");
+    }
+    
+    private List<T> writeInBatches(Collection<T> entities, BiFunction<EntityManager, T, T> write, String errorMessage) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int batchSize = JPAUtil.getBatchSize();
+        boolean clear = !JPAUtil.isUnitOfWorkActive();
+        return executeInTransaction(em -> {
+            List<T> written = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                written.add(write.apply(em, entity));
+                if (written.size() % batchSize == 0) {
+                    em.flush();
+                    if (clear) {
+                        em.clear();
+                    }
+                }
+            }
+            em.flush();
+            return written;
+        }, errorMessage);
+    }
+    
+    /**
+     * Apply a change to the current state of an entity, retrying on version conflicts.
+     * Each attempt reloads the row and re-applies the mutation in its own short transaction,
+     * so the mutation must be repeatable. Attempts never join a request unit of work: a version
+     * conflict there would leave the request transaction rollback-only, so the change commits
+     * on its own, before the request does.
+     * @return the updated entity, or empty if no entity has the given ID
+     */
+    public Optional<T> updateWithRetry(ID id, Consumer<T> mutation) {
+        return updateWithRetry(id, (em, entity) -> mutation.accept(entity));
+    }
+    
+    /**
+     * Like updateWithRetry(id, mutation), for mutations that look up other entities. They must use
+     * the given EntityManager, not the request's, so the update holds only one connection.
+     */
+    public Optional<T> updateWithRetry(ID id, BiConsumer<EntityManager, T> mutation) {
+        for (int attempt = 1; ; attempt++) {
+            EntityManager em = JPAUtil.getEntityManager();
+            EntityTransaction transaction = em.getTransaction();
+            try {
+                transaction.begin();
+                T entity = em.find(entityClass, id);
+                if (entity == null) {
+                    transaction.rollback();
+                    return Optional.empty();
+                }
+                mutation.accept(em, entity);
+                transaction.commit();
+                return Optional.of(entity);
+            } catch (Exception e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                if (!isOptimisticLockFailure(e)) {
+                    throw new RuntimeException("Error updating entity: " + e.getMessage(), e);
+                }
+                if (attempt >= MAX_UPDATE_ATTEMPTS) {
+                    throw new RuntimeException("Update conflicted with concurrent changes after "
+                        + attempt + " attempts", e);
+                }
+            } finally {
+                em.close();
+            }
+            backOff(attempt);
+        }
+    }
+    
+    private static boolean isOptimisticLockFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException || t instanceof org.hibernate.StaleStateException) {
+                return true;
             }
-            throw new RuntimeException("Error updating entity: " + e.getMessage(), e);
-        } finally {
-            em.close();
+        }
+        return false;
+    }
+    
+    private static void backOff(int attempt) {
+        long delay = RETRY_BACKOFF_MILLIS * attempt + ThreadLocalRandom.current().nextLong(RETRY_BACKOFF_MILLIS + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while retrying update", e);
         }
     }
     
@@ -74,24 +177,29 @@ public abstract class GenericDAO<T, ID> {
      * Delete an entity by ID
      */
     public void delete(ID id) {
-        EntityManager em = JPAUtil.getEntityManager();
-        EntityTransaction transaction = null;
-        
-        try {
-            transaction = em.getTransaction();
-            transaction.begin();
+        executeInTransaction(em -> {
             T entity = em.find(entityClass, id);
             if (entity != null) {
                 em.remove(entity);
             }
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null && transaction.isActive()) {
-                transaction.rollback();
+            return null;
+        }, "Error deleting entity");
+    }
+    
+    /**
+     * Re-read an entity's state from the database, e.g. after a bulk update
+     */
+    public T refresh(T entity) {
+        EntityManager em = getEntityManager();
+        try {
+            if (em.contains(entity)) {
+                em.refresh(entity);
+                return entity;
             }
-            throw new RuntimeException("Error deleting entity: " + e.getMessage(), e);
+            Object id = em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+            return em.find(entityClass, id);
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -99,12 +207,12 @@ public abstract class GenericDAO<T, ID> {
      * Find entity by ID
      */
     public Optional<T> findById(ID id) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             T entity = em.find(entityClass, id);
             return Optional.ofNullable(entity);
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -112,7 +220,7 @@ public abstract class GenericDAO<T, ID> {
      * Find all entities
      */
     public List<T> findAll() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             CriteriaQuery<T> cq = cb.createQuery(entityClass);
@@ -121,7 +229,7 @@ public abstract class GenericDAO<T, ID> {
             TypedQuery<T> query = em.createQuery(cq);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -129,7 +237,7 @@ public abstract class GenericDAO<T, ID> {
      * Find all entities with pagination
      */
     public List<T> findAll(int offset, int limit) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             CriteriaQuery<T> cq = cb.createQuery(entityClass);
@@ -140,7 +248,7 @@ public abstract class GenericDAO<T, ID> {
             query.setMaxResults(limit);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -148,7 +256,7 @@ public abstract class GenericDAO<T, ID> {
      * Count all entities
      */
     public long count() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             CriteriaBuilder cb = em.getCriteriaBuilder();
             CriteriaQuery<Long> cq = cb.createQuery(Long.class);
@@ -156,7 +264,7 @@ public abstract class GenericDAO<T, ID> {
             cq.select(cb.count(root));
             return em.createQuery(cq).getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -164,24 +272,98 @@ public abstract class GenericDAO<T, ID> {
      * Execute update/delete query
      */
     protected int executeUpdate(String jpql, Object... params) {
+        return executeInTransaction(em -> {
+            var query = em.createQuery(jpql);
+            for (int i = 0; i < params.length; i++) {
+                query.setParameter(i + 1, params[i]);
+            }
+            return query.executeUpdate();
+        }, "Error executing update");
+    }
+    
+    /**
+     * Pass every result of a JPQL query (entities or constructor-expression views) to an action,
+     * reading rows through a forward-only cursor. Runs on its own read-only EntityManager,
+     * independent of any unit of work, and clears it periodically, so memory use does not grow
+     * with the number of rows. Associations the action reads must be fetched by the query.
+     */
+    protected <R> void scroll(String jpql, Class<R> resultClass, Consumer<R> action) {
+        EntityManager em = JPAUtil.getEntityManager();
+        EntityTransaction transaction = em.getTransaction();
+        try {
+            transaction.begin();
+            Session session = em.unwrap(Session.class);
+            session.setDefaultReadOnly(true);
+            try (ScrollableResults results = session.createQuery(jpql, resultClass)
+                    .setFetchSize(JPAUtil.getStreamingFetchSize())
+                    .scroll(ScrollMode.FORWARD_ONLY)) {
+                int count = 0;
+                while (results.next()) {
+                    action.accept(resultClass.cast(results.get(0)));
+                    if (++count % SCROLL_CLEAR_INTERVAL == 0) {
+                        em.clear();
+                    }
+                }
+            }
+            transaction.commit();
+        } finally {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            em.close();
+        }
+    }
+    
+    /**
+     * Get the EntityManager for a DAO call: the request-scoped one when a unit of work
+     * is active, otherwise a new one that the caller must release with closeEntityManager
+     */
+    protected EntityManager getEntityManager() {
+        EntityManager current = JPAUtil.getCurrentEntityManager();
+        return current != null ? current : JPAUtil.getEntityManager();
+    }
+    
+    /**
+     * Release an EntityManager obtained from getEntityManager. The request-scoped
+     * EntityManager stays open until the unit of work ends.
+     */
+    protected void closeEntityManager(EntityManager em) {
+        if (!JPAUtil.isUnitOfWorkActive()) {
+            em.close();
+        }
+    }
+    
+    /**
+     * Run work in a transaction. Inside a unit of work the request transaction is joined
+     * (and marked rollback-only on failure); otherwise a dedicated transaction is used.
+     */
+    protected <R> R executeInTransaction(Function<EntityManager, R> work, String errorMessage) {
+        EntityManager current = JPAUtil.getCurrentEntityManager();
+        if (current != null) {
+            try {
+                return work.apply(current);
+            } catch (Exception e) {
+                if (current.getTransaction().isActive()) {
+                    current.getTransaction().setRollbackOnly();
+                }
+                throw new RuntimeException(errorMessage + ": " + e.getMessage(), e);
+            }
+        }
+        
         EntityManager em = JPAUtil.getEntityManager();
         EntityTransaction transaction = null;
         
         try {
             transaction = em.getTransaction();
             transaction.begin();
-            var query = em.createQuery(jpql);
-            for (int i = 0; i < params.length; i++) {
-                query.setParameter(i + 1, params[i]);
-            }
-            int result = query.executeUpdate();
+            R result = work.apply(em);
             transaction.commit();
             return result;
         } catch (Exception e) {
             if (transaction != null && transaction.isActive()) {
                 transaction.rollback();
             }
-            throw new RuntimeException("Error executing update: " + e.getMessage(), e);
+            throw new RuntimeException(errorMessage + ": " + e.getMessage(), e);
         } finally {
             em.close();
         }
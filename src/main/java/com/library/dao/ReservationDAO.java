@@ -1,7 +1,6 @@
 package com.library.dao;
 
 import com.library.entity.Reservation;
-import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
 
@@ -21,7 +20,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Find reservations by user
      */
     public List<Reservation> findByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Reservation> query = em.createQuery(
                 "SELECT r FROM Reservation r WHERE r.user.userId = :userId ORDER BY r.reservationDate DESC", 
@@ -29,7 +28,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("userId", userId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -37,7 +36,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Find active reservations by user
      */
     public List<Reservation> findActiveReservationsByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Reservation> query = em.createQuery(
                 "SELECT r FROM Reservation r WHERE r.user.userId = :userId " +
@@ -47,7 +46,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("status", Reservation.ReservationStatus.ACTIVE);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -55,7 +54,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Find reservations by book
      */
     public List<Reservation> findByBook(Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Reservation> query = em.createQuery(
                 "SELECT r FROM Reservation r WHERE r.book.bookId = :bookId ORDER BY r.reservationDate", 
@@ -63,7 +62,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("bookId", bookId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -71,7 +70,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Find active reservations by book
      */
     public List<Reservation> findActiveReservationsByBook(Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Reservation> query = em.createQuery(
                 "SELECT r FROM Reservation r WHERE r.book.bookId = :bookId " +
@@ -81,7 +80,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("status", Reservation.ReservationStatus.ACTIVE);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -89,7 +88,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Find reservations by status
      */
     public List<Reservation> findByStatus(Reservation.ReservationStatus status) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Reservation> query = em.createQuery(
                 "SELECT r FROM Reservation r WHERE r.status = :status ORDER BY r.reservationDate DESC", 
@@ -97,7 +96,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("status", status);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -105,7 +104,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Find expired reservations
      */
     public List<Reservation> findExpiredReservations() {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Reservation> query = em.createQuery(
                 "SELECT r FROM Reservation r WHERE " +
@@ -115,7 +114,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("now", LocalDateTime.now());
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -123,7 +122,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
      * Count active reservations by user
      */
     public long countActiveReservationsByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Long> query = em.createQuery(
                 "SELECT COUNT(r) FROM Reservation r WHERE r.user.userId = :userId " +
@@ -133,7 +132,7 @@ public class ReservationDAO extends GenericDAO<Reservation, Long> {
             query.setParameter("status", Reservation.ReservationStatus.ACTIVE);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
 }
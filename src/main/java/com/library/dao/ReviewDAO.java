@@ -1,7 +1,6 @@
 package com.library.dao;
 
 import com.library.entity.Review;
-import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
@@ -22,7 +21,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Find reviews by book
      */
     public List<Review> findByBook(Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Review> query = em.createQuery(
                 "SELECT r FROM Review r WHERE r.book.bookId = :bookId ORDER BY r.reviewDate DESC", 
@@ -30,7 +29,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
             query.setParameter("bookId", bookId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -38,7 +37,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Find reviews by user
      */
     public List<Review> findByUser(Long userId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Review> query = em.createQuery(
                 "SELECT r FROM Review r WHERE r.user.userId = :userId ORDER BY r.reviewDate DESC", 
@@ -46,7 +45,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
             query.setParameter("userId", userId);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -54,7 +53,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Find review by user and book
      */
     public Optional<Review> findByUserAndBook(Long userId, Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Review> query = em.createQuery(
                 "SELECT r FROM Review r WHERE r.user.userId = :userId AND r.book.bookId = :bookId", 
@@ -65,7 +64,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
         } catch (NoResultException e) {
             return Optional.empty();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -73,7 +72,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Get average rating for a book
      */
     public Double getAverageRatingForBook(Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Double> query = em.createQuery(
                 "SELECT AVG(r.rating) FROM Review r WHERE r.book.bookId = :bookId", 
@@ -82,7 +81,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
             Double result = query.getSingleResult();
             return result != null ? result : 0.0;
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -90,7 +89,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Count reviews for a book
      */
     public long countReviewsForBook(Long bookId) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Long> query = em.createQuery(
                 "SELECT COUNT(r) FROM Review r WHERE r.book.bookId = :bookId", 
@@ -98,7 +97,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
             query.setParameter("bookId", bookId);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -106,7 +105,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Get recent reviews
      */
     public List<Review> getRecentReviews(int limit) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Review> query = em.createQuery(
                 "SELECT r FROM Review r ORDER BY r.reviewDate DESC", 
@@ -114,7 +113,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
             query.setMaxResults(limit);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -122,7 +121,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
      * Find reviews by rating
      */
     public List<Review> findByRating(Integer rating) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Review> query = em.createQuery(
                 "SELECT r FROM Review r WHERE r.rating = :rating ORDER BY r.reviewDate DESC", 
@@ -130,7 +129,7 @@ public class ReviewDAO extends GenericDAO<Review, Long> {
             query.setParameter("rating", rating);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
 }
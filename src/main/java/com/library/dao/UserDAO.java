@@ -1,28 +1,61 @@
 package com.library.dao;
 
+import com.library.dto.UserDTO;
 import com.library.entity.User;
-import com.library.util.JPAUtil;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * DAO class for User entity operations
  */
 public class UserDAO extends GenericDAO<User, Long> {
     
+    // Selects UserDTO views directly, without loading User entities
+    private static final String SELECT_DTO =
+        "SELECT new com.library.dto.UserDTO(u.userId, u.username, u.email, u.firstName, u.lastName, " +
+        "u.phone, u.address, u.role, u.status, u.registrationDate, u.lastLogin) FROM User u ";
+    
     public UserDAO() {
         super(User.class);
     }
     
+    /**
+     * Pass every user view to an action in ID order
+     */
+    public void forEachDTO(Consumer<UserDTO> action) {
+        scroll(SELECT_DTO + "ORDER BY u.userId", UserDTO.class, action);
+    }
+    
+    /**
+     * Find the next page of user views in ID order
+     * @param afterId ID of the last user of the previous page, or null for the first page
+     */
+    public List<UserDTO> findDTOPageAfter(Long afterId, int limit) {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<UserDTO> query = em.createQuery(SELECT_DTO +
+                (afterId != null ? "WHERE u.userId > :afterId " : "") +
+                "ORDER BY u.userId", UserDTO.class);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+            }
+            query.setMaxResults(limit);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
+        }
+    }
+    
     /**
      * Find user by username
      */
     public Optional<User> findByUsername(String username) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<User> query = em.createQuery(
                 "SELECT u FROM User u WHERE u.username = :username", User.class);
@@ -31,7 +64,7 @@ public class UserDAO extends GenericDAO<User, Long> {
         } catch (NoResultException e) {
             return Optional.empty();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -39,7 +72,7 @@ public class UserDAO extends GenericDAO<User, Long> {
      * Find user by email
      */
     public Optional<User> findByEmail(String email) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<User> query = em.createQuery(
                 "SELECT u FROM User u WHERE u.email = :email", User.class);
@@ -48,7 +81,7 @@ public class UserDAO extends GenericDAO<User, Long> {
         } catch (NoResultException e) {
             return Optional.empty();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -56,14 +89,14 @@ public class UserDAO extends GenericDAO<User, Long> {
      * Find users by role
      */
     public List<User> findByRole(User.UserRole role) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<User> query = em.createQuery(
                 "SELECT u FROM User u WHERE u.role = :role", User.class);
             query.setParameter("role", role);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -71,22 +104,52 @@ public class UserDAO extends GenericDAO<User, Long> {
      * Find users by status
      */
     public List<User> findByStatus(User.UserStatus status) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<User> query = em.createQuery(
                 "SELECT u FROM User u WHERE u.status = :status", User.class);
             query.setParameter("status", status);
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Find the IDs of all users whose status is not ACTIVE
+     */
+    public List<Long> findInactiveUserIds() {
+        EntityManager em = getEntityManager();
+        try {
+            TypedQuery<Long> query = em.createQuery(
+                "SELECT u.userId FROM User u WHERE u.status <> :status", Long.class);
+            query.setParameter("status", User.UserStatus.ACTIVE);
+            return query.getResultList();
+        } finally {
+            closeEntityManager(em);
         }
     }
     
+    /**
+     * Replace a user's password hash only if it still has the expected value,
+     * so a concurrent password change is never overwritten
+     * @return true if the hash was replaced
+     */
+    public boolean updatePasswordHashIfUnchanged(Long userId, String expectedHash, String newHash) {
+        return executeInTransaction(em -> em.createQuery(
+                "UPDATE User u SET u.passwordHash = :newHash, u.version = u.version + 1 "
+                    + "WHERE u.userId = :userId AND u.passwordHash = :expectedHash")
+            .setParameter("newHash", newHash)
+            .setParameter("userId", userId)
+            .setParameter("expectedHash", expectedHash)
+            .executeUpdate() == 1, "Error updating password hash");
+    }
+    
     /**
      * Search users by name or username
      */
     public List<User> searchUsers(String searchTerm) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<User> query = em.createQuery(
                 "SELECT u FROM User u WHERE " +
@@ -97,7 +160,7 @@ public class UserDAO extends GenericDAO<User, Long> {
             query.setParameter("term", "%" + searchTerm + "%");
             return query.getResultList();
         } finally {
-            em.close();
+            closeEntityManager(em);
         }
     }
     
@@ -119,15 +182,28 @@ public class UserDAO extends GenericDAO<User, Long> {
      * Count users by role
      */
     public long countByRole(User.UserRole role) {
-        EntityManager em = JPAUtil.getEntityManager();
+        EntityManager em = getEntityManager();
         try {
             TypedQuery<Long> query = em.createQuery(
                 "SELECT COUNT(u) FROM User u WHERE u.role = :role", Long.class);
             query.setParameter("role", role);
             return query.getSingleResult();
         } finally {
-            em.close();
+            closeEntityManager(em);
+        }
+    }
+    
+    /**
+     * Count users per role and status, as {role, status, count} rows
+     */
+    public List<Object[]> countByRoleAndStatus() {
+        EntityManager em = getEntityManager();
+        try {
+            return em.createQuery(
+                "SELECT u.role, u.status, COUNT(u) FROM User u GROUP BY u.role, u.status", Object[].class)
+                .getResultList();
+        } finally {
+            closeEntityManager(em);
         }
     }
 }
-
@@ -0,0 +1,29 @@
+package com.library.dto;
+
+import com.library.entity.Author;
+
+/**
+ * Immutable author reference embedded in book views
+ */
+public final class AuthorDTO {
+    
+    private final Long authorId;
+    private final String authorName;
+    
+    public AuthorDTO(Long authorId, String authorName) {
+        this.authorId = authorId;
+        this.authorName = authorName;
+    }
+    
+    public static AuthorDTO from(Author author) {
+        return new AuthorDTO(author.getAuthorId(), author.getAuthorName());
+    }
+    
+    public Long getAuthorId() {
+        return authorId;
+    }
+    
+    public String getAuthorName() {
+        return authorName;
+    }
+}
@@ -0,0 +1,161 @@
+package com.library.dto;
+
+import com.library.entity.Book;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable book view returned by the API, with its category and authors
+ */
+public final class BookDTO {
+    
+    private final Long bookId;
+    private final String isbn;
+    private final String title;
+    private final String subtitle;
+    private final String publisher;
+    private final LocalDate publicationDate;
+    private final String edition;
+    private final String language;
+    private final Integer pages;
+    private final String description;
+    private final String coverImageUrl;
+    private final Integer totalCopies;
+    private final Integer availableCopies;
+    private final Book.BookStatus status;
+    private final Long categoryId;
+    private final String categoryName;
+    private final List<AuthorDTO> authors;
+    
+    /**
+     * Used by JPQL constructor expressions, which cannot select collections; the authors
+     * are attached afterwards with {@link #withAuthors}. The argument order is part of
+     * the queries in BookDAO.
+     */
+    public BookDTO(Long bookId, String isbn, String title, String subtitle, String publisher,
+                   LocalDate publicationDate, String edition, String language, Integer pages,
+                   String description, String coverImageUrl, Integer totalCopies, Integer availableCopies,
+                   Book.BookStatus status, Long categoryId, String categoryName) {
+        this(bookId, isbn, title, subtitle, publisher, publicationDate, edition, language, pages, description,
+            coverImageUrl, totalCopies, availableCopies, status, categoryId, categoryName, Collections.emptyList());
+    }
+    
+    private BookDTO(Long bookId, String isbn, String title, String subtitle, String publisher,
+                    LocalDate publicationDate, String edition, String language, Integer pages,
+                    String description, String coverImageUrl, Integer totalCopies, Integer availableCopies,
+                    Book.BookStatus status, Long categoryId, String categoryName, List<AuthorDTO> authors) {
+        this.bookId = bookId;
+        this.isbn = isbn;
+        this.title = title;
+        this.subtitle = subtitle;
+        this.publisher = publisher;
+        this.publicationDate = publicationDate;
+        this.edition = edition;
+        this.language = language;
+        this.pages = pages;
+        this.description = description;
+        this.coverImageUrl = coverImageUrl;
+        this.totalCopies = totalCopies;
+        this.availableCopies = availableCopies;
+        this.status = status;
+        this.categoryId = categoryId;
+        this.categoryName = categoryName;
+        this.authors = authors;
+    }
+    
+    /**
+     * Build from an entity whose category and authors are loaded
+     */
+    public static BookDTO from(Book book) {
+        return new BookDTO(book.getBookId(), book.getIsbn(), book.getTitle(), book.getSubtitle(),
+            book.getPublisher(), book.getPublicationDate(), book.getEdition(), book.getLanguage(),
+            book.getPages(), book.getDescription(), book.getCoverImageUrl(), book.getTotalCopies(),
+            book.getAvailableCopies(), book.getStatus(),
+            book.getCategory() != null ? book.getCategory().getCategoryId() : null,
+            book.getCategory() != null ? book.getCategory().getCategoryName() : null)
+            .withAuthors(book.getAuthors().stream().map(AuthorDTO::from).collect(Collectors.toList()));
+    }
+    
+    /**
+     * Copy of this book with the given authors
+     */
+    public BookDTO withAuthors(List<AuthorDTO> bookAuthors) {
+        return new BookDTO(bookId, isbn, title, subtitle, publisher, publicationDate, edition, language, pages,
+            description, coverImageUrl, totalCopies, availableCopies, status, categoryId, categoryName,
+            Collections.unmodifiableList(bookAuthors));
+    }
+    
+    public Long getBookId() {
+        return bookId;
+    }
+    
+    public String getIsbn() {
+        return isbn;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getSubtitle() {
+        return subtitle;
+    }
+    
+    public String getPublisher() {
+        return publisher;
+    }
+    
+    public LocalDate getPublicationDate() {
+        return publicationDate;
+    }
+    
+    public String getEdition() {
+        return edition;
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public Integer getPages() {
+        return pages;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public String getCoverImageUrl() {
+        return coverImageUrl;
+    }
+    
+    public Integer getTotalCopies() {
+        return totalCopies;
+    }
+    
+    public Integer getAvailableCopies() {
+        return availableCopies;
+    }
+    
+    public Book.BookStatus getStatus() {
+        return status;
+    }
+    
+    /**
+     * @return the category ID, or null if the book has no category
+     */
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public String getCategoryName() {
+        return categoryName;
+    }
+    
+    public List<AuthorDTO> getAuthors() {
+        return authors;
+    }
+}
@@ -0,0 +1,174 @@
+package com.library.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * One book of a bulk import (POST /api/books/import): a JSON Lines object or a CSV record.
+ * Category and authors are given by name and created when they do not exist yet.
+ */
+public class BookImportRow implements ValidatedRequest {
+    
+    /**
+     * CSV header names, matched ignoring case; authors are separated by ';' in CSV
+     */
+    public static final List<String> COLUMNS = List.of("isbn", "title", "subtitle", "authors", "category",
+        "publisher", "edition", "language", "pages", "totalCopies", "description", "coverImageUrl");
+    
+    private String isbn;
+    private String title;
+    private String subtitle;
+    private List<String> authors;
+    private String category;
+    private String publisher;
+    private String edition;
+    private String language;
+    private Integer pages;
+    private Integer totalCopies;
+    private String description;
+    private String coverImageUrl;
+    
+    /**
+     * Build a row from CSV fields keyed by column name; empty fields are absent
+     * @throws IllegalArgumentException if a number column does not hold a number
+     */
+    public static BookImportRow fromCsv(Map<String, String> fields) {
+        BookImportRow row = new BookImportRow();
+        row.isbn = text(fields.get("isbn"));
+        row.title = text(fields.get("title"));
+        row.subtitle = text(fields.get("subtitle"));
+        row.category = text(fields.get("category"));
+        row.publisher = text(fields.get("publisher"));
+        row.edition = text(fields.get("edition"));
+        row.language = text(fields.get("language"));
+        row.pages = number(fields.get("pages"), "pages");
+        row.totalCopies = number(fields.get("totalcopies"), "totalCopies");
+        row.description = text(fields.get("description"));
+        row.coverImageUrl = text(fields.get("coverimageurl"));
+        String authorNames = text(fields.get("authors"));
+        if (authorNames != null) {
+            row.authors = new ArrayList<>();
+            for (String name : authorNames.split(";")) {
+                if (!name.isBlank()) {
+                    row.authors.add(name.trim());
+                }
+            }
+        }
+        return row;
+    }
+    
+    /**
+     * Column key as used by fromCsv, or null if the header is not an import column
+     */
+    public static String columnKey(String header) {
+        String key = header.trim().toLowerCase(Locale.ROOT);
+        for (String column : COLUMNS) {
+            if (column.toLowerCase(Locale.ROOT).equals(key)) {
+                return key;
+            }
+        }
+        return null;
+    }
+    
+    private static String text(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+    
+    private static Integer number(String value, String column) {
+        String text = text(value);
+        if (text == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(text);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": " + text);
+        }
+    }
+    
+    @Override
+    public String validate() {
+        if (RequestChecks.isBlank(isbn) || RequestChecks.isBlank(title)) {
+            return "ISBN and title are required";
+        }
+        if (RequestChecks.tooLong(isbn, 20)) {
+            return "ISBN must be at most 20 characters";
+        }
+        if (RequestChecks.tooLong(title, 255) || RequestChecks.tooLong(subtitle, 255)) {
+            return "Title and subtitle must be at most 255 characters";
+        }
+        if (RequestChecks.tooLong(publisher, 100) || RequestChecks.tooLong(category, 100)) {
+            return "Publisher and category must be at most 100 characters";
+        }
+        if (RequestChecks.tooLong(edition, 50) || RequestChecks.tooLong(language, 50)) {
+            return "Edition and language must be at most 50 characters";
+        }
+        if (RequestChecks.tooLong(coverImageUrl, 500)) {
+            return "Cover image URL must be at most 500 characters";
+        }
+        if (pages != null && pages < 1) {
+            return "Pages must be positive";
+        }
+        if (RequestChecks.isNegative(totalCopies)) {
+            return "Copy counts must not be negative";
+        }
+        if (authors != null) {
+            for (String author : authors) {
+                if (RequestChecks.isBlank(author) || RequestChecks.tooLong(author, 100)) {
+                    return "Author names must be 1 to 100 characters";
+                }
+            }
+        }
+        return null;
+    }
+    
+    public String getIsbn() {
+        return isbn;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getSubtitle() {
+        return subtitle;
+    }
+    
+    public List<String> getAuthors() {
+        return authors != null ? authors : List.of();
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public String getPublisher() {
+        return publisher;
+    }
+    
+    public String getEdition() {
+        return edition;
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public Integer getPages() {
+        return pages;
+    }
+    
+    public Integer getTotalCopies() {
+        return totalCopies;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public String getCoverImageUrl() {
+        return coverImageUrl;
+    }
+}
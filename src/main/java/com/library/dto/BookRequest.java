@@ -0,0 +1,108 @@
+package com.library.dto;
+
+import java.util.List;
+
+/**
+ * Body of POST /api/books and PUT /api/books/{id}.
+ * Absent fields are null; on update they leave the stored value unchanged.
+ */
+public class BookRequest implements ValidatedRequest {
+    
+    private String isbn;
+    private String title;
+    private String subtitle;
+    private String publisher;
+    private String edition;
+    private String language;
+    private String description;
+    private String coverImageUrl;
+    private Integer pages;
+    private Integer totalCopies;
+    private Integer availableCopies;
+    private Long categoryId;
+    private List<Long> authorIds;
+    
+    @Override
+    public String validate() {
+        if (RequestChecks.tooLong(isbn, 20)) {
+            return "ISBN must be at most 20 characters";
+        }
+        if (RequestChecks.tooLong(title, 255) || RequestChecks.tooLong(subtitle, 255)) {
+            return "Title and subtitle must be at most 255 characters";
+        }
+        if (RequestChecks.tooLong(publisher, 100)) {
+            return "Publisher must be at most 100 characters";
+        }
+        if (RequestChecks.tooLong(edition, 50) || RequestChecks.tooLong(language, 50)) {
+            return "Edition and language must be at most 50 characters";
+        }
+        if (RequestChecks.tooLong(coverImageUrl, 500)) {
+            return "Cover image URL must be at most 500 characters";
+        }
+        if (pages != null && pages < 1) {
+            return "Pages must be positive";
+        }
+        if (RequestChecks.isNegative(totalCopies) || RequestChecks.isNegative(availableCopies)) {
+            return "Copy counts must not be negative";
+        }
+        if (totalCopies != null && availableCopies != null && availableCopies > totalCopies) {
+            return "Available copies cannot exceed total copies";
+        }
+        if (authorIds != null && authorIds.contains(null)) {
+            return "Author IDs must not be null";
+        }
+        return null;
+    }
+    
+    public String getIsbn() {
+        return isbn;
+    }
+    
+    public String getTitle() {
+        return title;
+    }
+    
+    public String getSubtitle() {
+        return subtitle;
+    }
+    
+    public String getPublisher() {
+        return publisher;
+    }
+    
+    public String getEdition() {
+        return edition;
+    }
+    
+    public String getLanguage() {
+        return language;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public String getCoverImageUrl() {
+        return coverImageUrl;
+    }
+    
+    public Integer getPages() {
+        return pages;
+    }
+    
+    public Integer getTotalCopies() {
+        return totalCopies;
+    }
+    
+    public Integer getAvailableCopies() {
+        return availableCopies;
+    }
+    
+    public Long getCategoryId() {
+        return categoryId;
+    }
+    
+    public List<Long> getAuthorIds() {
+        return authorIds;
+    }
+}
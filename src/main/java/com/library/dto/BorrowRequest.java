@@ -0,0 +1,44 @@
+package com.library.dto;
+
+/**
+ * Body of POST /api/borrowing/borrow
+ */
+public class BorrowRequest implements ValidatedRequest {
+    
+    private static final int MAX_DAYS = 365;
+    
+    private Long userId;
+    private Long bookId;
+    private Long issuedById;
+    private Integer days;
+    
+    @Override
+    public String validate() {
+        if (userId == null || bookId == null) {
+            return "User ID and book ID are required";
+        }
+        if (days != null && (days < 1 || days > MAX_DAYS)) {
+            return "Days must be between 1 and " + MAX_DAYS;
+        }
+        return null;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public Long getBookId() {
+        return bookId;
+    }
+    
+    public Long getIssuedById() {
+        return issuedById;
+    }
+    
+    /**
+     * Loan period in days, or 0 to use the default period
+     */
+    public int getDays() {
+        return days != null ? days : 0;
+    }
+}
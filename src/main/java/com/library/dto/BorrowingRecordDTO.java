@@ -0,0 +1,127 @@
+package com.library.dto;
+
+import com.library.entity.BorrowingRecord;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable borrowing record view returned by the API, with the borrower and book it refers to
+ */
+public final class BorrowingRecordDTO {
+    
+    private final Long recordId;
+    private final LocalDateTime borrowDate;
+    private final LocalDateTime dueDate;
+    private final LocalDateTime returnDate;
+    private final BorrowingRecord.BorrowStatus status;
+    private final BigDecimal fineAmount;
+    private final String notes;
+    private final Long userId;
+    private final String username;
+    private final String userFirstName;
+    private final String userLastName;
+    private final Long bookId;
+    private final String bookTitle;
+    private final String bookIsbn;
+    
+    /**
+     * Used by JPQL constructor expressions; the argument order is part of the queries in BorrowingRecordDAO
+     */
+    public BorrowingRecordDTO(Long recordId, LocalDateTime borrowDate, LocalDateTime dueDate,
+                              LocalDateTime returnDate, BorrowingRecord.BorrowStatus status,
+                              BigDecimal fineAmount, String notes,
+                              Long userId, String username, String userFirstName, String userLastName,
+                              Long bookId, String bookTitle, String bookIsbn) {
+        this.recordId = recordId;
+        this.borrowDate = borrowDate;
+        this.dueDate = dueDate;
+        this.returnDate = returnDate;
+        this.status = status;
+        this.fineAmount = fineAmount;
+        this.notes = notes;
+        this.userId = userId;
+        this.username = username;
+        this.userFirstName = userFirstName;
+        this.userLastName = userLastName;
+        this.bookId = bookId;
+        this.bookTitle = bookTitle;
+        this.bookIsbn = bookIsbn;
+    }
+    
+    /**
+     * Build from an entity whose user and book are loaded
+     */
+    public static BorrowingRecordDTO from(BorrowingRecord record) {
+        return new BorrowingRecordDTO(record.getRecordId(), record.getBorrowDate(), record.getDueDate(),
+            record.getReturnDate(), record.getStatus(), record.getFineAmount(), record.getNotes(),
+            record.getUser().getUserId(), record.getUser().getUsername(),
+            record.getUser().getFirstName(), record.getUser().getLastName(),
+            record.getBook().getBookId(), record.getBook().getTitle(), record.getBook().getIsbn());
+    }
+    
+    /**
+     * Same rule as BorrowingRecord.isOverdue
+     */
+    public boolean isOverdue() {
+        return returnDate == null && LocalDateTime.now().isAfter(dueDate);
+    }
+    
+    public long getDaysOverdue() {
+        if (!isOverdue()) return 0;
+        return Duration.between(dueDate, LocalDateTime.now()).toDays();
+    }
+    
+    public Long getRecordId() {
+        return recordId;
+    }
+    
+    public LocalDateTime getBorrowDate() {
+        return borrowDate;
+    }
+    
+    public LocalDateTime getDueDate() {
+        return dueDate;
+    }
+    
+    public LocalDateTime getReturnDate() {
+        return returnDate;
+    }
+    
+    public BorrowingRecord.BorrowStatus getStatus() {
+        return status;
+    }
+    
+    public BigDecimal getFineAmount() {
+        return fineAmount;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getUserFullName() {
+        return userFirstName + " " + userLastName;
+    }
+    
+    public Long getBookId() {
+        return bookId;
+    }
+    
+    public String getBookTitle() {
+        return bookTitle;
+    }
+    
+    public String getBookIsbn() {
+        return bookIsbn;
+    }
+}
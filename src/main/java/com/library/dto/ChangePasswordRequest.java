@@ -0,0 +1,32 @@
+package com.library.dto;
+
+/**
+ * Body of POST /api/auth/change-password
+ */
+public class ChangePasswordRequest implements ValidatedRequest {
+    
+    private String oldPassword;
+    private String newPassword;
+    
+    @Override
+    public String validate() {
+        if (RequestChecks.isBlank(oldPassword)) {
+            return "Current password is required";
+        }
+        if (newPassword == null || newPassword.length() < 6) {
+            return "New password must be at least 6 characters";
+        }
+        if (newPassword.length() > 128) {
+            return "New password must be at most 128 characters";
+        }
+        return null;
+    }
+    
+    public String getOldPassword() {
+        return oldPassword;
+    }
+    
+    public String getNewPassword() {
+        return newPassword;
+    }
+}
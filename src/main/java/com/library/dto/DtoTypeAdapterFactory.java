@@ -0,0 +1,182 @@
+package com.library.dto;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Hand-written, write-only Gson adapters for the API views, so they serialize without reflection.
+ * The JSON field names match the maps the services returned before the views existed.
+ * Dates are written with the adapters registered on the Gson instance.
+ */
+public class DtoTypeAdapterFactory implements TypeAdapterFactory {
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType == BookDTO.class) {
+            return (TypeAdapter<T>) new BookAdapter(gson.getAdapter(LocalDate.class)).nullSafe();
+        }
+        if (rawType == UserDTO.class) {
+            return (TypeAdapter<T>) new UserAdapter(gson.getAdapter(LocalDateTime.class)).nullSafe();
+        }
+        if (rawType == BorrowingRecordDTO.class) {
+            return (TypeAdapter<T>) new BorrowingRecordAdapter(gson.getAdapter(LocalDateTime.class)).nullSafe();
+        }
+        if (rawType == FineDTO.class) {
+            return (TypeAdapter<T>) new FineAdapter(gson.getAdapter(LocalDateTime.class)).nullSafe();
+        }
+        return null;
+    }
+    
+    private abstract static class WriteOnlyAdapter<T> extends TypeAdapter<T> {
+        @Override
+        public T read(JsonReader in) {
+            throw new UnsupportedOperationException("API views are not read from JSON");
+        }
+    }
+    
+    private static class BookAdapter extends WriteOnlyAdapter<BookDTO> {
+        private final TypeAdapter<LocalDate> dateAdapter;
+        
+        BookAdapter(TypeAdapter<LocalDate> dateAdapter) {
+            this.dateAdapter = dateAdapter;
+        }
+        
+        @Override
+        public void write(JsonWriter out, BookDTO book) throws IOException {
+            out.beginObject();
+            out.name("bookId").value(book.getBookId());
+            out.name("isbn").value(book.getIsbn());
+            out.name("title").value(book.getTitle());
+            out.name("subtitle").value(book.getSubtitle());
+            out.name("publisher").value(book.getPublisher());
+            out.name("publicationDate");
+            dateAdapter.write(out, book.getPublicationDate());
+            out.name("edition").value(book.getEdition());
+            out.name("language").value(book.getLanguage());
+            out.name("pages").value(book.getPages());
+            out.name("description").value(book.getDescription());
+            out.name("coverImageUrl").value(book.getCoverImageUrl());
+            out.name("totalCopies").value(book.getTotalCopies());
+            out.name("availableCopies").value(book.getAvailableCopies());
+            out.name("status").value(book.getStatus().name());
+            if (book.getCategoryId() != null) {
+                out.name("category").beginObject();
+                out.name("categoryId").value(book.getCategoryId());
+                out.name("categoryName").value(book.getCategoryName());
+                out.endObject();
+            }
+            out.name("authors").beginArray();
+            for (AuthorDTO author : book.getAuthors()) {
+                out.beginObject();
+                out.name("authorId").value(author.getAuthorId());
+                out.name("authorName").value(author.getAuthorName());
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+        }
+    }
+    
+    private static class UserAdapter extends WriteOnlyAdapter<UserDTO> {
+        private final TypeAdapter<LocalDateTime> dateTimeAdapter;
+        
+        UserAdapter(TypeAdapter<LocalDateTime> dateTimeAdapter) {
+            this.dateTimeAdapter = dateTimeAdapter;
+        }
+        
+        @Override
+        public void write(JsonWriter out, UserDTO user) throws IOException {
+            out.beginObject();
+            out.name("userId").value(user.getUserId());
+            out.name("username").value(user.getUsername());
+            out.name("email").value(user.getEmail());
+            out.name("firstName").value(user.getFirstName());
+            out.name("lastName").value(user.getLastName());
+            out.name("fullName").value(user.getFullName());
+            out.name("phone").value(user.getPhone());
+            out.name("address").value(user.getAddress());
+            out.name("role").value(user.getRole().name());
+            out.name("status").value(user.getStatus().name());
+            out.name("registrationDate");
+            dateTimeAdapter.write(out, user.getRegistrationDate());
+            out.name("lastLogin");
+            dateTimeAdapter.write(out, user.getLastLogin());
+            out.endObject();
+        }
+    }
+    
+    private static class BorrowingRecordAdapter extends WriteOnlyAdapter<BorrowingRecordDTO> {
+        private final TypeAdapter<LocalDateTime> dateTimeAdapter;
+        
+        BorrowingRecordAdapter(TypeAdapter<LocalDateTime> dateTimeAdapter) {
+            this.dateTimeAdapter = dateTimeAdapter;
+        }
+        
+        @Override
+        public void write(JsonWriter out, BorrowingRecordDTO record) throws IOException {
+            out.beginObject();
+            out.name("recordId").value(record.getRecordId());
+            out.name("borrowDate");
+            dateTimeAdapter.write(out, record.getBorrowDate());
+            out.name("dueDate");
+            dateTimeAdapter.write(out, record.getDueDate());
+            out.name("returnDate");
+            dateTimeAdapter.write(out, record.getReturnDate());
+            out.name("status").value(record.getStatus().name());
+            out.name("fineAmount").value(record.getFineAmount());
+            out.name("notes").value(record.getNotes());
+            out.name("isOverdue").value(record.isOverdue());
+            out.name("daysOverdue").value(record.getDaysOverdue());
+            
+            out.name("user").beginObject();
+            out.name("userId").value(record.getUserId());
+            out.name("username").value(record.getUsername());
+            out.name("fullName").value(record.getUserFullName());
+            out.endObject();
+            
+            out.name("book").beginObject();
+            out.name("bookId").value(record.getBookId());
+            out.name("title").value(record.getBookTitle());
+            out.name("isbn").value(record.getBookIsbn());
+            out.endObject();
+            
+            out.endObject();
+        }
+    }
+    
+    private static class FineAdapter extends WriteOnlyAdapter<FineDTO> {
+        private final TypeAdapter<LocalDateTime> dateTimeAdapter;
+        
+        FineAdapter(TypeAdapter<LocalDateTime> dateTimeAdapter) {
+            this.dateTimeAdapter = dateTimeAdapter;
+        }
+        
+        @Override
+        public void write(JsonWriter out, FineDTO fine) throws IOException {
+            out.beginObject();
+            out.name("fineId").value(fine.getFineId());
+            out.name("recordId").value(fine.getRecordId());
+            out.name("userId").value(fine.getUserId());
+            out.name("username").value(fine.getUsername());
+            out.name("fineAmount").value(fine.getFineAmount());
+            out.name("fineReason").value(fine.getFineReason());
+            out.name("fineDate");
+            dateTimeAdapter.write(out, fine.getFineDate());
+            out.name("paymentDate");
+            dateTimeAdapter.write(out, fine.getPaymentDate());
+            out.name("status").value(fine.getStatus().name());
+            out.name("paymentMethod").value(fine.getPaymentMethod());
+            out.endObject();
+        }
+    }
+}
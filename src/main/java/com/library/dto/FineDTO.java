@@ -0,0 +1,81 @@
+package com.library.dto;
+
+import com.library.entity.Fine;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Immutable fine view, with the borrowing record and user it belongs to
+ */
+public final class FineDTO {
+    
+    private final Long fineId;
+    private final Long recordId;
+    private final Long userId;
+    private final String username;
+    private final BigDecimal fineAmount;
+    private final String fineReason;
+    private final LocalDateTime fineDate;
+    private final LocalDateTime paymentDate;
+    private final Fine.FineStatus status;
+    private final String paymentMethod;
+    
+    /**
+     * Used by JPQL constructor expressions; the argument order is part of the queries in FineDAO
+     */
+    public FineDTO(Long fineId, Long recordId, Long userId, String username, BigDecimal fineAmount,
+                   String fineReason, LocalDateTime fineDate, LocalDateTime paymentDate,
+                   Fine.FineStatus status, String paymentMethod) {
+        this.fineId = fineId;
+        this.recordId = recordId;
+        this.userId = userId;
+        this.username = username;
+        this.fineAmount = fineAmount;
+        this.fineReason = fineReason;
+        this.fineDate = fineDate;
+        this.paymentDate = paymentDate;
+        this.status = status;
+        this.paymentMethod = paymentMethod;
+    }
+    
+    public Long getFineId() {
+        return fineId;
+    }
+    
+    public Long getRecordId() {
+        return recordId;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public BigDecimal getFineAmount() {
+        return fineAmount;
+    }
+    
+    public String getFineReason() {
+        return fineReason;
+    }
+    
+    public LocalDateTime getFineDate() {
+        return fineDate;
+    }
+    
+    public LocalDateTime getPaymentDate() {
+        return paymentDate;
+    }
+    
+    public Fine.FineStatus getStatus() {
+        return status;
+    }
+    
+    public String getPaymentMethod() {
+        return paymentMethod;
+    }
+}
@@ -0,0 +1,32 @@
+package com.library.dto;
+
+/**
+ * Body of POST /api/auth/login
+ */
+public class LoginRequest implements ValidatedRequest {
+    
+    // BCrypt only uses the first 72 bytes; longer input just costs hashing time
+    private static final int MAX_PASSWORD_LENGTH = 128;
+    
+    private String username;
+    private String password;
+    
+    @Override
+    public String validate() {
+        if (RequestChecks.tooLong(username, 50)) {
+            return "Username must be at most 50 characters";
+        }
+        if (RequestChecks.tooLong(password, MAX_PASSWORD_LENGTH)) {
+            return "Password must be at most " + MAX_PASSWORD_LENGTH + " characters";
+        }
+        return null;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+}
@@ -0,0 +1,41 @@
+package com.library.dto;
+
+/**
+ * Field checks shared by the request bodies
+ */
+final class RequestChecks {
+    
+    private RequestChecks() {
+    }
+    
+    static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+    
+    static boolean tooLong(String value, int maxLength) {
+        return value != null && value.length() > maxLength;
+    }
+    
+    static boolean isNegative(Integer value) {
+        return value != null && value < 0;
+    }
+    
+    /**
+     * Whether a non-null name matches none of the constants of an enum, ignoring case
+     */
+    static <E extends Enum<E>> boolean notOneOf(String name, Class<E> enumType) {
+        if (name == null) {
+            return false;
+        }
+        for (E constant : enumType.getEnumConstants()) {
+            if (constant.name().equalsIgnoreCase(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    static <E extends Enum<E>> E toEnum(String name, Class<E> enumType) {
+        return name != null ? Enum.valueOf(enumType, name.toUpperCase()) : null;
+    }
+}
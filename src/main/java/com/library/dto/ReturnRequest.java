@@ -0,0 +1,18 @@
+package com.library.dto;
+
+/**
+ * Optional body of POST /api/borrowing/return/{recordId}
+ */
+public class ReturnRequest implements ValidatedRequest {
+    
+    private Long returnedToId;
+    
+    @Override
+    public String validate() {
+        return null;
+    }
+    
+    public Long getReturnedToId() {
+        return returnedToId;
+    }
+}
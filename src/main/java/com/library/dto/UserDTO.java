@@ -0,0 +1,96 @@
+package com.library.dto;
+
+import com.library.entity.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable user view returned by the API (without sensitive data)
+ */
+public final class UserDTO {
+    
+    private final Long userId;
+    private final String username;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    private final String phone;
+    private final String address;
+    private final User.UserRole role;
+    private final User.UserStatus status;
+    private final LocalDateTime registrationDate;
+    private final LocalDateTime lastLogin;
+    
+    /**
+     * Used by JPQL constructor expressions; the argument order is part of the queries in UserDAO
+     */
+    public UserDTO(Long userId, String username, String email, String firstName, String lastName,
+                   String phone, String address, User.UserRole role, User.UserStatus status,
+                   LocalDateTime registrationDate, LocalDateTime lastLogin) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phone = phone;
+        this.address = address;
+        this.role = role;
+        this.status = status;
+        this.registrationDate = registrationDate;
+        this.lastLogin = lastLogin;
+    }
+    
+    public static UserDTO from(User user) {
+        return new UserDTO(user.getUserId(), user.getUsername(), user.getEmail(), user.getFirstName(),
+            user.getLastName(), user.getPhone(), user.getAddress(), user.getRole(), user.getStatus(),
+            user.getRegistrationDate(), user.getLastLogin());
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getFirstName() {
+        return firstName;
+    }
+    
+    public String getLastName() {
+        return lastName;
+    }
+    
+    public String getFullName() {
+        return firstName + " " + lastName;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    public User.UserRole getRole() {
+        return role;
+    }
+    
+    public User.UserStatus getStatus() {
+        return status;
+    }
+    
+    public LocalDateTime getRegistrationDate() {
+        return registrationDate;
+    }
+    
+    public LocalDateTime getLastLogin() {
+        return lastLogin;
+    }
+}
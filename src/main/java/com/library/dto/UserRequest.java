@@ -0,0 +1,92 @@
+package com.library.dto;
+
+import com.library.entity.User;
+
+/**
+ * Body of POST /api/auth/register, POST /api/users and PUT /api/users/{id}.
+ * Absent fields are null; on update they leave the stored value unchanged.
+ */
+public class UserRequest implements ValidatedRequest {
+    
+    private String username;
+    private String email;
+    private String password;
+    private String firstName;
+    private String lastName;
+    private String phone;
+    private String address;
+    private String role;
+    private String status;
+    
+    @Override
+    public String validate() {
+        if (RequestChecks.tooLong(username, 50)) {
+            return "Username must be at most 50 characters";
+        }
+        if (RequestChecks.tooLong(email, 100)) {
+            return "Email must be at most 100 characters";
+        }
+        if (email != null && !email.contains("@")) {
+            return "Email is invalid";
+        }
+        if (password != null && (password.length() < 6 || password.length() > 128)) {
+            return "Password must be between 6 and 128 characters";
+        }
+        if (RequestChecks.tooLong(firstName, 50) || RequestChecks.tooLong(lastName, 50)) {
+            return "First and last name must be at most 50 characters";
+        }
+        if (RequestChecks.tooLong(phone, 20)) {
+            return "Phone must be at most 20 characters";
+        }
+        if (RequestChecks.notOneOf(role, User.UserRole.class)) {
+            return "Invalid role: " + role;
+        }
+        if (RequestChecks.notOneOf(status, User.UserStatus.class)) {
+            return "Invalid status: " + status;
+        }
+        return null;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getPassword() {
+        return password;
+    }
+    
+    public String getFirstName() {
+        return firstName;
+    }
+    
+    public String getLastName() {
+        return lastName;
+    }
+    
+    public String getPhone() {
+        return phone;
+    }
+    
+    public String getAddress() {
+        return address;
+    }
+    
+    /**
+     * Role name as sent, for callers that take it as text
+     */
+    public String getRoleName() {
+        return role;
+    }
+    
+    public User.UserRole getRole() {
+        return RequestChecks.toEnum(role, User.UserRole.class);
+    }
+    
+    public User.UserStatus getStatus() {
+        return RequestChecks.toEnum(status, User.UserStatus.class);
+    }
+}
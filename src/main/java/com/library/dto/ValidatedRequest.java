@@ -0,0 +1,12 @@
+package com.library.dto;
+
+/**
+ * A JSON request body that checks its own fields once it has been bound
+ */
+public interface ValidatedRequest {
+    
+    /**
+     * Get the first problem with this request, or null if it is valid
+     */
+    String validate();
+}
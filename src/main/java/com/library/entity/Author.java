@@ -1,6 +1,8 @@
 package com.library.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -8,10 +10,14 @@ import java.util.List;
 
 @Entity
 @Table(name = "authors")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "author")
 public class Author {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "author_id")
+    @TableGenerator(name = "author_id", table = "id_generators", pkColumnName = "sequence_name",
+        valueColumnName = "next_val", pkColumnValue = "authors", allocationSize = 50)
     @Column(name = "author_id")
     private Long authorId;
     
@@ -1,6 +1,8 @@
 package com.library.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -11,7 +13,10 @@ import java.util.List;
 public class Book {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // IDs come from id_generators in blocks of 50; unlike IDENTITY this lets inserts be batched
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "book_id")
+    @TableGenerator(name = "book_id", table = "id_generators", pkColumnName = "sequence_name",
+        valueColumnName = "next_val", pkColumnValue = "books", allocationSize = 50)
     @Column(name = "book_id")
     private Long bookId;
     
@@ -58,6 +63,10 @@ public class Book {
     @Column(nullable = false)
     private BookStatus status = BookStatus.AVAILABLE;
     
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -65,6 +74,7 @@ public class Book {
     private LocalDateTime updatedAt;
     
     @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "book-authors")
     @JoinTable(
         name = "book_authors",
         joinColumns = @JoinColumn(name = "book_id"),
@@ -245,6 +255,14 @@ public class Book {
         this.status = status;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -48,6 +48,10 @@ public class BorrowingRecord {
     @JoinColumn(name = "returned_to")
     private User returnedTo;
     
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -188,6 +192,14 @@ public class BorrowingRecord {
         this.returnedTo = returnedTo;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -14,7 +14,7 @@ public class Fine {
     private Long fineId;
     
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "record_id", nullable = false)
+    @JoinColumn(name = "record_id", nullable = false, unique = true)
     private BorrowingRecord borrowingRecord;
     
     @ManyToOne(fetch = FetchType.LAZY)
@@ -40,6 +40,10 @@ public class Fine {
     @Column(name = "payment_method", length = 50)
     private String paymentMethod;
     
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -166,6 +170,14 @@ public class Fine {
         this.paymentMethod = paymentMethod;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
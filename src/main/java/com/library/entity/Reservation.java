@@ -33,6 +33,10 @@ public class Reservation {
     @Column(nullable = false)
     private Boolean notified = false;
     
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -136,6 +140,14 @@ public class Reservation {
         this.notified = notified;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
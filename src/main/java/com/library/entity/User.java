@@ -10,7 +10,9 @@ import java.util.List;
 public class User {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "user_id")
+    @TableGenerator(name = "user_id", table = "id_generators", pkColumnName = "sequence_name",
+        valueColumnName = "next_val", pkColumnValue = "users", allocationSize = 50)
     @Column(name = "user_id")
     private Long userId;
     
@@ -49,6 +51,10 @@ public class User {
     @Column(name = "last_login")
     private LocalDateTime lastLogin;
     
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at")
     private LocalDateTime createdAt;
     
@@ -195,6 +201,14 @@ public class User {
         this.lastLogin = lastLogin;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
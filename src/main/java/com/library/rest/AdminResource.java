@@ -0,0 +1,248 @@
+package com.library.rest;
+
+import com.library.search.BookSearchIndex;
+import com.library.security.JWTUtil;
+import com.library.security.LoginThrottle;
+import com.library.security.PasswordHasher;
+import com.library.service.CatalogVersion;
+import com.library.service.LibraryStatistics;
+import com.library.service.OverdueJob;
+import com.library.util.GsonUtil;
+import com.library.util.JPAUtil;
+import com.google.gson.Gson;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+
+import java.util.Map;
+
+/**
+ * REST API endpoints for operational monitoring
+ */
+@Path("/admin")
+@Produces(MediaType.APPLICATION_JSON)
+public class AdminResource {
+    
+    private final Gson gson;
+    
+    public AdminResource() {
+        this.gson = GsonUtil.getGson();
+    }
+    
+    /**
+     * GET /api/admin/pool - Get connection pool statistics
+     */
+    @GET
+    @Path("/pool")
+    public Response getPoolStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", JPAUtil.getPoolStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching pool statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/admin/cache - Get second-level cache statistics
+     */
+    @GET
+    @Path("/cache")
+    public Response getCacheStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", JPAUtil.getCacheStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching cache statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * DELETE /api/admin/cache - Evict all second-level cache entries and invalidate catalog ETags
+     */
+    @DELETE
+    @Path("/cache")
+    public Response evictCache() {
+        try {
+            JPAUtil.evictSecondLevelCache();
+            // Data changed behind Hibernate's back is also invisible to the HTTP validators
+            CatalogVersion.changed();
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "message", "Cache evicted successfully"
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error evicting cache: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/admin/search - Get book search index statistics
+     */
+    @GET
+    @Path("/search")
+    public Response getSearchIndexStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", BookSearchIndex.getInstance().getStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching search index statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/admin/jwt - Get verified-token cache statistics
+     */
+    @GET
+    @Path("/jwt")
+    public Response getJwtCacheStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", JWTUtil.getCacheStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching token cache statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/admin/auth - Get password hashing pool and login throttling statistics
+     */
+    @GET
+    @Path("/auth")
+    public Response getAuthStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", Map.of(
+                    "hashing", PasswordHasher.getStatistics(),
+                    "throttle", LoginThrottle.getStatistics()
+                )
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching authentication statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/admin/overdue - Get overdue job statistics: schedule, last run and cumulative counts
+     */
+    @GET
+    @Path("/overdue")
+    public Response getOverdueJobStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", OverdueJob.getStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching overdue job statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * POST /api/admin/overdue/run - Run the overdue job now and return the statistics of the run
+     */
+    @POST
+    @Path("/overdue/run")
+    public Response runOverdueJob() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", OverdueJob.runNow()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error running overdue job: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/admin/statistics - Get dashboard counter reconciliation statistics
+     */
+    @GET
+    @Path("/statistics")
+    public Response getReconciliationStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", LibraryStatistics.getReconciliationStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching reconciliation statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * POST /api/admin/statistics/reconcile - Reload the dashboard counters from the database
+     * and return the drift that was corrected
+     */
+    @POST
+    @Path("/statistics/reconcile")
+    public Response reconcileStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", LibraryStatistics.reconcile()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error reconciling statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+}
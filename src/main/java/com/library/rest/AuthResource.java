@@ -1,12 +1,23 @@
 package com.library.rest;
 
+import com.library.dto.ChangePasswordRequest;
+import com.library.dto.LoginRequest;
+import com.library.dto.UserRequest;
+import com.library.security.UserPrincipal;
 import com.library.service.AuthService;
 import com.library.util.GsonUtil;
 import com.google.gson.Gson;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.SecurityContext;
 
+import java.security.Principal;
 import java.util.Map;
 
 /**
@@ -27,89 +38,80 @@ public class AuthResource {
     
     /**
      * POST /api/auth/register - Register new user
+     * Password hashing runs on the bounded worker pool; the response is resumed when it completes.
      */
     @POST
     @Path("/register")
-    public Response register(String jsonPayload) {
+    public void register(UserRequest request, @Suspended AsyncResponse asyncResponse) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, String> data = gson.fromJson(jsonPayload, Map.class);
-            
-            String username = data.get("username");
-            String email = data.get("email");
-            String password = data.get("password");
-            String firstName = data.get("firstName");
-            String lastName = data.get("lastName");
-            String role = data.get("role");
-            
-            Map<String, Object> result = authService.register(username, email, password, firstName, lastName, role);
-            
-            if ((Boolean) result.get("success")) {
-                return Response.ok(gson.toJson(result)).build();
-            } else {
-                return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(result)).build();
-            }
+            authService.registerAsync(request.getUsername(), request.getEmail(), request.getPassword(),
+                    request.getFirstName(), request.getLastName(), request.getRoleName())
+                .whenComplete((result, error) -> asyncResponse.resume(
+                    error == null ? hashingResponse(result, Response.Status.BAD_REQUEST) : processingError(error)));
         } catch (Exception e) {
-            Map<String, Object> error = Map.of(
-                "success", false,
-                "message", "Error processing request: " + e.getMessage()
-            );
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+            asyncResponse.resume(processingError(e));
         }
     }
     
     /**
      * POST /api/auth/login - User login
+     * Password verification runs on a bounded worker pool; the response is resumed when it completes.
      */
     @POST
     @Path("/login")
-    public Response login(String jsonPayload) {
+    public void login(LoginRequest login, @Context HttpServletRequest request,
+                      @Suspended AsyncResponse asyncResponse) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, String> data = gson.fromJson(jsonPayload, Map.class);
-            
-            String username = data.get("username");
-            String password = data.get("password");
-            
-            Map<String, Object> result = authService.login(username, password);
-            
-            if ((Boolean) result.get("success")) {
-                return Response.ok(gson.toJson(result)).build();
-            } else {
-                return Response.status(Response.Status.UNAUTHORIZED).entity(gson.toJson(result)).build();
-            }
+            authService.loginAsync(login.getUsername(), login.getPassword(), request.getRemoteAddr())
+                .whenComplete((result, error) -> asyncResponse.resume(
+                    error == null ? hashingResponse(result, Response.Status.UNAUTHORIZED) : processingError(error)));
         } catch (Exception e) {
-            Map<String, Object> error = Map.of(
-                "success", false,
-                "message", "Error processing request: " + e.getMessage()
-            );
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+            asyncResponse.resume(processingError(e));
         }
     }
     
+    /**
+     * Response for work done on the hashing pool: 429 with Retry-After when it was refused,
+     * otherwise 200 or the given failure status
+     */
+    private Response hashingResponse(Map<String, Object> result, Response.Status failureStatus) {
+        if ((Boolean) result.get("success")) {
+            return Response.ok(gson.toJson(result)).build();
+        } else if (result.containsKey("retryAfter")) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, result.get("retryAfter"))
+                .entity(gson.toJson(result))
+                .build();
+        } else {
+            return Response.status(failureStatus).entity(gson.toJson(result)).build();
+        }
+    }
+    
+    private Response processingError(Throwable e) {
+        Map<String, Object> error = Map.of(
+            "success", false,
+            "message", "Error processing request: " + e.getMessage()
+        );
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+    }
+    
     /**
      * GET /api/auth/me - Get current user info
      */
     @GET
     @Path("/me")
-    public Response getCurrentUser(@HeaderParam("Authorization") String authHeader) {
+    public Response getCurrentUser(@Context SecurityContext securityContext) {
         try {
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                Map<String, Object> error = Map.of(
-                    "success", false,
-                    "message", "Missing or invalid authorization header"
-                );
-                return Response.status(Response.Status.UNAUTHORIZED).entity(gson.toJson(error)).build();
+            UserPrincipal principal = getPrincipal(securityContext);
+            if (principal == null) {
+                return unauthorized();
             }
             
-            String token = authHeader.substring(7);
-            Map<String, Object> result = authService.validateToken(token);
-            
-            if ((Boolean) result.get("success")) {
-                return Response.ok(gson.toJson(result)).build();
-            } else {
-                return Response.status(Response.Status.UNAUTHORIZED).entity(gson.toJson(result)).build();
-            }
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "user", principal.toUserInfo()
+            );
+            return Response.ok(gson.toJson(response)).build();
         } catch (Exception e) {
             Map<String, Object> error = Map.of(
                 "success", false,
@@ -121,49 +123,41 @@ public class AuthResource {
     
     /**
      * POST /api/auth/change-password - Change password
+     * Password verification and hashing run on the bounded worker pool; the response is resumed when they complete.
      */
     @POST
     @Path("/change-password")
-    public Response changePassword(@HeaderParam("Authorization") String authHeader, String jsonPayload) {
+    public void changePassword(@Context SecurityContext securityContext, ChangePasswordRequest request,
+                               @Context HttpServletRequest httpRequest, @Suspended AsyncResponse asyncResponse) {
         try {
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-                Map<String, Object> error = Map.of(
-                    "success", false,
-                    "message", "Missing or invalid authorization header"
-                );
-                return Response.status(Response.Status.UNAUTHORIZED).entity(gson.toJson(error)).build();
-            }
-            
-            String token = authHeader.substring(7);
-            Map<String, Object> validation = authService.validateToken(token);
-            
-            if (!(Boolean) validation.get("success")) {
-                return Response.status(Response.Status.UNAUTHORIZED).entity(gson.toJson(validation)).build();
+            UserPrincipal principal = getPrincipal(securityContext);
+            if (principal == null) {
+                asyncResponse.resume(unauthorized());
+                return;
             }
             
-            @SuppressWarnings("unchecked")
-            Map<String, Object> userInfo = (Map<String, Object>) validation.get("user");
-            Long userId = ((Number) userInfo.get("userId")).longValue();
-            
-            @SuppressWarnings("unchecked")
-            Map<String, String> data = gson.fromJson(jsonPayload, Map.class);
-            String oldPassword = data.get("oldPassword");
-            String newPassword = data.get("newPassword");
-            
-            Map<String, Object> result = authService.changePassword(userId, oldPassword, newPassword);
-            
-            if ((Boolean) result.get("success")) {
-                return Response.ok(gson.toJson(result)).build();
-            } else {
-                return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(result)).build();
-            }
+            authService.changePasswordAsync(principal.getUserId(), principal.getUsername(), request.getOldPassword(),
+                    request.getNewPassword(), httpRequest.getRemoteAddr())
+                .whenComplete((result, error) -> asyncResponse.resume(
+                    error == null ? hashingResponse(result, Response.Status.BAD_REQUEST) : processingError(error)));
         } catch (Exception e) {
-            Map<String, Object> error = Map.of(
-                "success", false,
-                "message", "Error processing request: " + e.getMessage()
-            );
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+            asyncResponse.resume(processingError(e));
         }
     }
+    
+    /**
+     * Get the user authenticated by AuthenticationFilter, or null
+     */
+    private UserPrincipal getPrincipal(SecurityContext securityContext) {
+        Principal principal = securityContext.getUserPrincipal();
+        return principal instanceof UserPrincipal ? (UserPrincipal) principal : null;
+    }
+    
+    private Response unauthorized() {
+        Map<String, Object> error = Map.of(
+            "success", false,
+            "message", "Missing, invalid or expired token"
+        );
+        return Response.status(Response.Status.UNAUTHORIZED).entity(gson.toJson(error)).build();
+    }
 }
-
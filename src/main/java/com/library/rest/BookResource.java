@@ -1,24 +1,55 @@
 package com.library.rest;
 
+import com.library.dto.BookDTO;
+import com.library.dto.BookRequest;
+import com.library.service.BookImport;
 import com.library.service.BookService;
+import com.library.service.CatalogVersion;
 import com.library.util.GsonUtil;
+import com.library.util.JPAUtil;
+import com.library.util.PageCursor;
 import com.google.gson.Gson;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 /**
- * REST API endpoints for book management
+ * REST API endpoints for book management.
+ * Catalog reads carry an ETag and Last-Modified from CatalogVersion and answer 304 when they still match.
  */
 @Path("/books")
 @Produces(MediaType.APPLICATION_JSON)
 @Consumes(MediaType.APPLICATION_JSON)
 public class BookResource {
     
+    private static final String CSV = "text/csv";
+    private static final String JSON_LINES = "application/x-ndjson";
+    
+    // Catalog reads: revalidate before reuse unless a max-age is configured
+    private static final CacheControl CATALOG_CACHE = cacheControl(JPAUtil.getIntConfig("http.catalog.maxAgeSeconds", 0));
+    // Autocomplete: the same prefixes are requested again while the user types
+    private static final CacheControl SUGGEST_CACHE = cacheControl(JPAUtil.getIntConfig("http.suggest.maxAgeSeconds", 60));
+    
     private final BookService bookService;
     private final Gson gson;
     
@@ -28,17 +59,32 @@ public class BookResource {
     }
     
     /**
-     * GET /api/books - Get all books
+     * GET /api/books?after={cursor}&limit={n} - Get all books
+     * Without after/limit the full list is streamed; with either, one page plus nextCursor
      */
     @GET
-    public Response getAllBooks() {
+    public Response getAllBooks(@QueryParam("after") String after, @QueryParam("limit") Integer limit,
+                                @Context Request request) {
         try {
-            List<Map<String, Object>> books = bookService.getAllBooks();
-            Map<String, Object> response = Map.of(
-                "success", true,
-                "data", books
+            CatalogVersion.Snapshot version = CatalogVersion.current();
+            Response notModified = notModified(request, version);
+            if (notModified != null) {
+                return notModified;
+            }
+            
+            if (after != null || limit != null) {
+                Map<String, Object> response = new HashMap<>(bookService.getBooksPage(after, PageCursor.clampLimit(limit)));
+                response.put("success", true);
+                return cached(Response.ok(gson.toJson(response)), version);
+            }
+            
+            return cached(Response.ok(new JsonStreamingOutput<>(bookService::forEachBook)), version);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", e.getMessage()
             );
-            return Response.ok(gson.toJson(response)).build();
+            return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(error)).build();
         } catch (Exception e) {
             Map<String, Object> error = Map.of(
                 "success", false,
@@ -53,14 +99,20 @@ public class BookResource {
      */
     @GET
     @Path("/available")
-    public Response getAvailableBooks() {
+    public Response getAvailableBooks(@Context Request request) {
         try {
-            List<Map<String, Object>> books = bookService.getAvailableBooks();
+            CatalogVersion.Snapshot version = CatalogVersion.current();
+            Response notModified = notModified(request, version);
+            if (notModified != null) {
+                return notModified;
+            }
+            
+            List<BookDTO> books = bookService.getAvailableBooks();
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", books
             );
-            return Response.ok(gson.toJson(response)).build();
+            return cached(Response.ok(gson.toJson(response)), version);
         } catch (Exception e) {
             Map<String, Object> error = Map.of(
                 "success", false,
@@ -75,7 +127,7 @@ public class BookResource {
      */
     @GET
     @Path("/search")
-    public Response searchBooks(@QueryParam("query") String query) {
+    public Response searchBooks(@QueryParam("query") String query, @Context Request request) {
         try {
             if (query == null || query.trim().isEmpty()) {
                 Map<String, Object> error = Map.of(
@@ -85,12 +137,18 @@ public class BookResource {
                 return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(error)).build();
             }
             
-            List<Map<String, Object>> books = bookService.searchBooks(query);
+            CatalogVersion.Snapshot version = CatalogVersion.current();
+            Response notModified = notModified(request, version);
+            if (notModified != null) {
+                return notModified;
+            }
+            
+            List<BookDTO> books = bookService.searchBooks(query);
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", books
             );
-            return Response.ok(gson.toJson(response)).build();
+            return cached(Response.ok(gson.toJson(response)), version);
         } catch (Exception e) {
             Map<String, Object> error = Map.of(
                 "success", false,
@@ -100,21 +158,51 @@ public class BookResource {
         }
     }
     
+    /**
+     * GET /api/books/suggest?prefix={prefix}&limit={n} - Autocomplete titles, authors and ISBNs
+     */
+    @GET
+    @Path("/suggest")
+    public Response suggest(@QueryParam("prefix") String prefix, @QueryParam("limit") @DefaultValue("10") int limit) {
+        try {
+            List<Map<String, Object>> suggestions = prefix == null || prefix.trim().isEmpty()
+                ? List.of()
+                : bookService.suggest(prefix, limit);
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", suggestions
+            );
+            return Response.ok(gson.toJson(response)).cacheControl(SUGGEST_CACHE).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching suggestions: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
     /**
      * GET /api/books/{id} - Get book by ID
      */
     @GET
     @Path("/{id}")
-    public Response getBookById(@PathParam("id") Long id) {
+    public Response getBookById(@PathParam("id") Long id, @Context Request request) {
         try {
-            Optional<Map<String, Object>> bookOpt = bookService.getBookById(id);
+            CatalogVersion.Snapshot version = CatalogVersion.current();
+            Response notModified = notModified(request, version);
+            if (notModified != null) {
+                return notModified;
+            }
+            
+            Optional<BookDTO> bookOpt = bookService.getBookById(id);
             
             if (bookOpt.isPresent()) {
                 Map<String, Object> response = Map.of(
                     "success", true,
                     "data", bookOpt.get()
                 );
-                return Response.ok(gson.toJson(response)).build();
+                return cached(Response.ok(gson.toJson(response)), version);
             } else {
                 Map<String, Object> error = Map.of(
                     "success", false,
@@ -135,12 +223,9 @@ public class BookResource {
      * POST /api/books - Create new book
      */
     @POST
-    public Response createBook(String jsonPayload) {
+    public Response createBook(BookRequest request) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = gson.fromJson(jsonPayload, Map.class);
-            
-            Map<String, Object> result = bookService.createBook(data);
+            Map<String, Object> result = bookService.createBook(request);
             
             if ((Boolean) result.get("success")) {
                 return Response.status(Response.Status.CREATED).entity(gson.toJson(result)).build();
@@ -156,17 +241,68 @@ public class BookResource {
         }
     }
     
+    /**
+     * POST /api/books/import - Import books from a CSV (text/csv) or JSON Lines
+     * (application/x-ndjson) body; see BookImportRow for the columns. The body is read while
+     * the response is written, as JSON lines: one per rejected row, one per imported batch
+     * with the counts so far, and a final "done" line.
+     */
+    @POST
+    @Path("/import")
+    @Consumes({CSV, JSON_LINES})
+    @Produces(JSON_LINES)
+    public Response importBooks(InputStream body, @Context HttpHeaders headers) {
+        try {
+            BookImport.Format format = MediaType.valueOf(CSV).isCompatible(headers.getMediaType())
+                ? BookImport.Format.CSV : BookImport.Format.JSON_LINES;
+            BookImport bookImport = new BookImport(new InputStreamReader(body, StandardCharsets.UTF_8), format);
+            
+            StreamingOutput output = out -> {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+                try {
+                    bookImport.run(event -> {
+                        try {
+                            writer.write(gson.toJson(event));
+                            writer.write('\n');
+                            // Row errors go out with the next progress line
+                            if (!"error".equals(event.get("event"))) {
+                                writer.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                writer.flush();
+            };
+            return Response.ok(output).build();
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", e.getMessage()
+            );
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                .entity(gson.toJson(error)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error importing books: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).type(MediaType.APPLICATION_JSON)
+                .entity(gson.toJson(error)).build();
+        }
+    }
+    
     /**
      * PUT /api/books/{id} - Update book
      */
     @PUT
     @Path("/{id}")
-    public Response updateBook(@PathParam("id") Long id, String jsonPayload) {
+    public Response updateBook(@PathParam("id") Long id, BookRequest request) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = gson.fromJson(jsonPayload, Map.class);
-            
-            Map<String, Object> result = bookService.updateBook(id, data);
+            Map<String, Object> result = bookService.updateBook(id, request);
             
             if ((Boolean) result.get("success")) {
                 return Response.ok(gson.toJson(result)).build();
@@ -204,5 +340,37 @@ public class BookResource {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
         }
     }
+    
+    /**
+     * Get a 304 response if the request's If-None-Match / If-Modified-Since still match the catalog
+     * version, or null when the full response must be built. Checked before any database access.
+     * If-Modified-Since is ignored within the second of the last change (see getLastModified).
+     */
+    private static Response notModified(Request request, CatalogVersion.Snapshot version) {
+        EntityTag tag = new EntityTag(version.getTag());
+        Date lastModified = version.getLastModified();
+        Response.ResponseBuilder builder = lastModified != null
+            ? request.evaluatePreconditions(lastModified, tag)
+            : request.evaluatePreconditions(tag);
+        return builder != null ? cached(builder, version) : null;
+    }
+    
+    private static Response cached(Response.ResponseBuilder builder, CatalogVersion.Snapshot version) {
+        // Without a Last-Modified date the client revalidates with the ETag alone
+        return builder.tag(new EntityTag(version.getTag()))
+            .lastModified(version.getLastModified())
+            .cacheControl(CATALOG_CACHE)
+            .build();
+    }
+    
+    private static CacheControl cacheControl(int maxAgeSeconds) {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setPrivate(true);
+        if (maxAgeSeconds > 0) {
+            cacheControl.setMaxAge(maxAgeSeconds);
+        } else {
+            cacheControl.setNoCache(true);
+        }
+        return cacheControl;
+    }
 }
-
@@ -1,12 +1,17 @@
 package com.library.rest;
 
+import com.library.dto.BorrowRequest;
+import com.library.dto.BorrowingRecordDTO;
+import com.library.dto.ReturnRequest;
 import com.library.service.BorrowingService;
 import com.library.util.GsonUtil;
+import com.library.util.PageCursor;
 import com.google.gson.Gson;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -31,19 +36,10 @@ public class BorrowingResource {
      */
     @POST
     @Path("/borrow")
-    public Response borrowBook(String jsonPayload) {
+    public Response borrowBook(BorrowRequest request) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, Object> data = gson.fromJson(jsonPayload, Map.class);
-            
-            Long userId = ((Number) data.get("userId")).longValue();
-            Long bookId = ((Number) data.get("bookId")).longValue();
-            Long issuedById = data.containsKey("issuedById") ? 
-                ((Number) data.get("issuedById")).longValue() : null;
-            int days = data.containsKey("days") ? 
-                ((Number) data.get("days")).intValue() : 14;
-            
-            Map<String, Object> result = borrowingService.borrowBook(userId, bookId, issuedById, days);
+            Map<String, Object> result = borrowingService.borrowBook(request.getUserId(), request.getBookId(),
+                request.getIssuedById(), request.getDays());
             
             if ((Boolean) result.get("success")) {
                 return Response.ok(gson.toJson(result)).build();
@@ -64,18 +60,9 @@ public class BorrowingResource {
      */
     @POST
     @Path("/return/{recordId}")
-    public Response returnBook(@PathParam("recordId") Long recordId, String jsonPayload) {
+    public Response returnBook(@PathParam("recordId") Long recordId, ReturnRequest request) {
         try {
-            Long returnedToId = null;
-            if (jsonPayload != null && !jsonPayload.isEmpty()) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> data = gson.fromJson(jsonPayload, Map.class);
-                if (data.containsKey("returnedToId")) {
-                    returnedToId = ((Number) data.get("returnedToId")).longValue();
-                }
-            }
-            
-            Map<String, Object> result = borrowingService.returnBook(recordId, returnedToId);
+            Map<String, Object> result = borrowingService.returnBook(recordId, request.getReturnedToId());
             
             if ((Boolean) result.get("success")) {
                 return Response.ok(gson.toJson(result)).build();
@@ -98,7 +85,7 @@ public class BorrowingResource {
     @Path("/user/{userId}")
     public Response getUserBorrowingHistory(@PathParam("userId") Long userId) {
         try {
-            List<Map<String, Object>> records = borrowingService.getUserBorrowingHistory(userId);
+            List<BorrowingRecordDTO> records = borrowingService.getUserBorrowingHistory(userId);
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", records
@@ -120,7 +107,7 @@ public class BorrowingResource {
     @Path("/user/{userId}/active")
     public Response getUserActiveBorrowings(@PathParam("userId") Long userId) {
         try {
-            List<Map<String, Object>> records = borrowingService.getUserActiveBorrowings(userId);
+            List<BorrowingRecordDTO> records = borrowingService.getUserActiveBorrowings(userId);
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", records
@@ -142,7 +129,7 @@ public class BorrowingResource {
     @Path("/overdue")
     public Response getOverdueBorrowings() {
         try {
-            List<Map<String, Object>> records = borrowingService.getOverdueBorrowings();
+            List<BorrowingRecordDTO> records = borrowingService.getOverdueBorrowings();
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", records
@@ -158,18 +145,26 @@ public class BorrowingResource {
     }
     
     /**
-     * GET /api/borrowing/all - Get all borrowing records
+     * GET /api/borrowing/all?after={cursor}&limit={n} - Get all borrowing records
+     * Without after/limit the full list is streamed; with either, one page plus nextCursor
      */
     @GET
     @Path("/all")
-    public Response getAllBorrowings() {
+    public Response getAllBorrowings(@QueryParam("after") String after, @QueryParam("limit") Integer limit) {
         try {
-            List<Map<String, Object>> records = borrowingService.getAllBorrowings();
-            Map<String, Object> response = Map.of(
-                "success", true,
-                "data", records
+            if (after != null || limit != null) {
+                Map<String, Object> response = new HashMap<>(borrowingService.getBorrowingsPage(after, PageCursor.clampLimit(limit)));
+                response.put("success", true);
+                return Response.ok(gson.toJson(response)).build();
+            }
+            
+            return Response.ok(new JsonStreamingOutput<>(borrowingService::forEachBorrowing)).build();
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", e.getMessage()
             );
-            return Response.ok(gson.toJson(response)).build();
+            return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(error)).build();
         } catch (Exception e) {
             Map<String, Object> error = Map.of(
                 "success", false,
@@ -186,7 +181,7 @@ public class BorrowingResource {
     @Path("/active")
     public Response getActiveBorrowings() {
         try {
-            List<Map<String, Object>> records = borrowingService.getActiveBorrowings();
+            List<BorrowingRecordDTO> records = borrowingService.getActiveBorrowings();
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", records
@@ -200,5 +195,46 @@ public class BorrowingResource {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
         }
     }
+    
+    /**
+     * GET /api/borrowing/statistics - Get borrowing statistics
+     */
+    @GET
+    @Path("/statistics")
+    public Response getBorrowingStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", borrowingService.getBorrowingStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
+    
+    /**
+     * GET /api/borrowing/fines/statistics - Get fine statistics
+     */
+    @GET
+    @Path("/fines/statistics")
+    public Response getFineStatistics() {
+        try {
+            Map<String, Object> response = Map.of(
+                "success", true,
+                "data", borrowingService.getFineStatistics()
+            );
+            return Response.ok(gson.toJson(response)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error fetching fine statistics: " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(gson.toJson(error)).build();
+        }
+    }
 }
-
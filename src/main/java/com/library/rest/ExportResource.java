@@ -0,0 +1,81 @@
+package com.library.rest;
+
+import com.library.service.DataExport;
+import com.library.util.GsonUtil;
+import com.google.gson.Gson;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.util.Map;
+
+/**
+ * REST API endpoints for full-table exports
+ */
+@Path("/export")
+public class ExportResource {
+    
+    private static final String CSV = "text/csv";
+    private static final String JSON_LINES = "application/x-ndjson";
+    private static final String RETRY_AFTER_SECONDS = "30";
+    
+    private final Gson gson;
+    
+    public ExportResource() {
+        this.gson = GsonUtil.getGson();
+    }
+    
+    /**
+     * GET /api/export/{dataset}?format=csv|ndjson - Stream every book, borrowing record or fine.
+     * JSON Lines is the default. The body is written while rows are read, so it is sent chunked;
+     * it is gzip-compressed when the client sends Accept-Encoding: gzip.
+     */
+    @GET
+    @Path("/{dataset}")
+    @Produces({JSON_LINES, CSV, MediaType.APPLICATION_JSON})
+    public Response export(@PathParam("dataset") String dataset, @QueryParam("format") @DefaultValue("ndjson") String format) {
+        try {
+            DataExport.Format exportFormat;
+            if ("csv".equalsIgnoreCase(format)) {
+                exportFormat = DataExport.Format.CSV;
+            } else if ("ndjson".equalsIgnoreCase(format) || "jsonl".equalsIgnoreCase(format)) {
+                exportFormat = DataExport.Format.JSON_LINES;
+            } else {
+                throw new IllegalArgumentException("Unknown format: " + format + " (expected csv or ndjson)");
+            }
+            
+            DataExport export = DataExport.open(dataset, exportFormat);
+            if (export == null) {
+                Map<String, Object> error = Map.of(
+                    "success", false,
+                    "message", "Too many exports in progress, try again later"
+                );
+                return Response.status(Response.Status.SERVICE_UNAVAILABLE).type(MediaType.APPLICATION_JSON)
+                    .header("Retry-After", RETRY_AFTER_SECONDS).entity(gson.toJson(error)).build();
+            }
+            
+            boolean csv = exportFormat == DataExport.Format.CSV;
+            StreamingOutput output = export::writeTo;
+            return Response.ok(output)
+                .type((csv ? CSV : JSON_LINES) + ";charset=UTF-8")
+                .header("Content-Disposition", "attachment; filename=\"" + dataset + (csv ? ".csv" : ".ndjson") + "\"")
+                .header("Cache-Control", "no-store")
+                .build();
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", e.getMessage()
+            );
+            return Response.status(Response.Status.BAD_REQUEST).type(MediaType.APPLICATION_JSON)
+                .entity(gson.toJson(error)).build();
+        } catch (Exception e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error exporting " + dataset + ": " + e.getMessage()
+            );
+            return Response.status(Response.Status.INTERNAL_SERVER_ERROR).type(MediaType.APPLICATION_JSON)
+                .entity(gson.toJson(error)).build();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.library.rest;
+
+import com.library.dto.ValidatedRequest;
+import com.library.util.GsonUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.Consumes;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.MessageBodyReader;
+import jakarta.ws.rs.ext.Provider;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Binds JSON request bodies straight from the entity stream into ValidatedRequest classes
+ * and validates them. Malformed or invalid bodies are answered with 400 before the resource
+ * method runs. An empty body binds to a request with every field absent.
+ */
+@Provider
+@Consumes(MediaType.APPLICATION_JSON)
+public class JsonRequestReader implements MessageBodyReader<ValidatedRequest> {
+    
+    private final Gson gson = GsonUtil.getGson();
+    
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return ValidatedRequest.class.isAssignableFrom(type);
+    }
+    
+    @Override
+    public ValidatedRequest readFrom(Class<ValidatedRequest> type, Type genericType, Annotation[] annotations,
+                                     MediaType mediaType, MultivaluedMap<String, String> httpHeaders,
+                                     InputStream entityStream) {
+        ValidatedRequest request;
+        try {
+            Reader reader = new InputStreamReader(entityStream, StandardCharsets.UTF_8);
+            request = gson.fromJson(reader, genericType);
+            if (request == null) {
+                request = gson.fromJson("{}", genericType);
+            }
+        } catch (JsonParseException e) {
+            throw badRequest("Invalid request body: " + rootMessage(e));
+        }
+        
+        String problem = request.validate();
+        if (problem != null) {
+            throw badRequest(problem);
+        }
+        return request;
+    }
+    
+    private BadRequestException badRequest(String message) {
+        Map<String, Object> error = Map.of(
+            "success", false,
+            "message", message
+        );
+        return new BadRequestException(Response.status(Response.Status.BAD_REQUEST)
+            .type(MediaType.APPLICATION_JSON)
+            .entity(gson.toJson(error))
+            .build());
+    }
+    
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+}
@@ -0,0 +1,54 @@
+package com.library.rest;
+
+import com.library.util.GsonUtil;
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.stream.JsonWriter;
+import jakarta.ws.rs.core.StreamingOutput;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Writes {"success": true, "data": [...]} straight to the response, serializing each element
+ * as the source produces it, so neither the list nor its JSON text is held in memory.
+ * The source runs while the response is written, after the request unit of work has ended.
+ * A failure part-way through truncates the response, since the status is already sent.
+ */
+public class JsonStreamingOutput<T> implements StreamingOutput {
+    
+    private final Consumer<Consumer<T>> source;
+    
+    /**
+     * @param source passes every element to the action it is given
+     */
+    public JsonStreamingOutput(Consumer<Consumer<T>> source) {
+        this.source = source;
+    }
+    
+    @Override
+    public void write(OutputStream output) throws IOException {
+        Gson gson = GsonUtil.getGson();
+        JsonWriter writer = gson.newJsonWriter(
+            new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)));
+        
+        writer.beginObject();
+        writer.name("success").value(true);
+        writer.name("data").beginArray();
+        try {
+            source.accept(element -> gson.toJson(element, element.getClass(), writer));
+        } catch (JsonIOException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        writer.endArray();
+        writer.endObject();
+        writer.flush();
+    }
+}
@@ -0,0 +1,45 @@
+package com.library.rest;
+
+import com.library.util.GsonUtil;
+import com.library.util.JPAUtil;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+import java.util.Map;
+
+/**
+ * Binds one EntityManager and transaction to each REST request.
+ * The transaction commits for successful responses and rolls back for error responses.
+ */
+@Provider
+public class UnitOfWorkFilter implements ContainerRequestFilter, ContainerResponseFilter {
+    
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        JPAUtil.beginUnitOfWork();
+    }
+    
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        if (!JPAUtil.isUnitOfWorkActive()) {
+            return;
+        }
+        
+        boolean commit = responseContext.getStatus() < 400;
+        try {
+            JPAUtil.endUnitOfWork(commit);
+        } catch (RuntimeException e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", "Error committing transaction: " + e.getMessage()
+            );
+            responseContext.setStatus(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode());
+            responseContext.setEntity(GsonUtil.toJson(error), null, MediaType.APPLICATION_JSON_TYPE);
+        }
+    }
+}
@@ -1,12 +1,19 @@
 package com.library.rest;
 
+import com.library.dto.UserDTO;
+import com.library.dto.UserRequest;
 import com.library.service.UserService;
 import com.library.util.GsonUtil;
+import com.library.util.PageCursor;
 import com.google.gson.Gson;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,17 +35,25 @@ public class UserResource {
     }
     
     /**
-     * GET /api/users - Get all users
+     * GET /api/users?after={cursor}&limit={n} - Get all users
+     * Without after/limit the full list is streamed; with either, one page plus nextCursor
      */
     @GET
-    public Response getAllUsers() {
+    public Response getAllUsers(@QueryParam("after") String after, @QueryParam("limit") Integer limit) {
         try {
-            List<Map<String, Object>> users = userService.getAllUsers();
-            Map<String, Object> response = Map.of(
-                "success", true,
-                "data", users
+            if (after != null || limit != null) {
+                Map<String, Object> response = new HashMap<>(userService.getUsersPage(after, PageCursor.clampLimit(limit)));
+                response.put("success", true);
+                return Response.ok(gson.toJson(response)).build();
+            }
+            
+            return Response.ok(new JsonStreamingOutput<>(userService::forEachUser)).build();
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = Map.of(
+                "success", false,
+                "message", e.getMessage()
             );
-            return Response.ok(gson.toJson(response)).build();
+            return Response.status(Response.Status.BAD_REQUEST).entity(gson.toJson(error)).build();
         } catch (Exception e) {
             Map<String, Object> error = Map.of(
                 "success", false,
@@ -56,7 +71,7 @@ public class UserResource {
     @Path("/{id}")
     public Response getUserById(@PathParam("id") Long id) {
         try {
-            Optional<Map<String, Object>> userOpt = userService.getUserById(id);
+            Optional<UserDTO> userOpt = userService.getUserById(id);
             
             if (userOpt.isPresent()) {
                 Map<String, Object> response = Map.of(
@@ -98,7 +113,7 @@ public class UserResource {
                     .entity(gson.toJson(error)).build();
             }
             
-            List<Map<String, Object>> users = userService.searchUsers(query);
+            List<UserDTO> users = userService.searchUsers(query);
             Map<String, Object> response = Map.of(
                 "success", true,
                 "data", users
@@ -116,43 +131,50 @@ public class UserResource {
     
     /**
      * POST /api/users - Create new user
+     * Password hashing runs on the bounded worker pool; the response is resumed when it completes.
      */
     @POST
-    public Response createUser(String jsonPayload) {
+    public void createUser(UserRequest request, @Suspended AsyncResponse asyncResponse) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, String> data = gson.fromJson(jsonPayload, Map.class);
-            
-            Map<String, Object> result = userService.createUser(data);
-            
-            if ((Boolean) result.get("success")) {
-                return Response.status(Response.Status.CREATED)
-                    .entity(gson.toJson(result)).build();
-            } else {
-                return Response.status(Response.Status.BAD_REQUEST)
-                    .entity(gson.toJson(result)).build();
-            }
+            userService.createUserAsync(request)
+                .whenComplete((result, error) -> asyncResponse.resume(
+                    error == null ? createUserResponse(result) : createUserError(error)));
         } catch (Exception e) {
-            Map<String, Object> error = Map.of(
-                "success", false,
-                "message", "Error creating user: " + e.getMessage()
-            );
-            return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-                .entity(gson.toJson(error)).build();
+            asyncResponse.resume(createUserError(e));
+        }
+    }
+    
+    private Response createUserResponse(Map<String, Object> result) {
+        if ((Boolean) result.get("success")) {
+            return Response.status(Response.Status.CREATED)
+                .entity(gson.toJson(result)).build();
+        } else if (result.containsKey("retryAfter")) {
+            return Response.status(Response.Status.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, result.get("retryAfter"))
+                .entity(gson.toJson(result)).build();
+        } else {
+            return Response.status(Response.Status.BAD_REQUEST)
+                .entity(gson.toJson(result)).build();
         }
     }
     
+    private Response createUserError(Throwable e) {
+        Map<String, Object> error = Map.of(
+            "success", false,
+            "message", "Error creating user: " + e.getMessage()
+        );
+        return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+            .entity(gson.toJson(error)).build();
+    }
+    
     /**
      * PUT /api/users/{id} - Update user
      */
     @PUT
     @Path("/{id}")
-    public Response updateUser(@PathParam("id") Long id, String jsonPayload) {
+    public Response updateUser(@PathParam("id") Long id, UserRequest request) {
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, String> data = gson.fromJson(jsonPayload, Map.class);
-            
-            Map<String, Object> result = userService.updateUser(id, data);
+            Map<String, Object> result = userService.updateUser(id, request);
             
             if ((Boolean) result.get("success")) {
                 return Response.ok(gson.toJson(result)).build();
@@ -0,0 +1,475 @@
+package com.library.search;
+
+import com.library.dao.BookDAO;
+import com.library.entity.Author;
+import com.library.entity.Book;
+import com.library.search.SuggestionTrie.Suggestion;
+import com.library.util.JPAUtil;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the book catalog with prefix matching and field-weighted ranking.
+ * Built once in the background from the database and kept current by BookService; live changes
+ * are applied when their unit of work commits.
+ */
+public class BookSearchIndex {
+    
+    // Field weights: a term found in the title ranks above the same term in the description
+    private static final int TITLE_WEIGHT = 10;
+    private static final int ISBN_WEIGHT = 10;
+    private static final int AUTHOR_WEIGHT = 8;
+    private static final int SUBTITLE_WEIGHT = 5;
+    private static final int PUBLISHER_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    
+    // Query tokens shorter than this only match whole terms, to keep prefix expansion cheap
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int BUILD_PAGE_SIZE = 1000;
+    
+    // Autocomplete: completions kept per trie node, key depth, and word starts indexed per text
+    private static final int SUGGEST_COMPLETIONS = 10;
+    private static final int SUGGEST_MAX_DEPTH = 24;
+    private static final int SUGGEST_MAX_WORD_STARTS = 8;
+    private static final int TITLE_SUGGESTION_WEIGHT = 3;
+    private static final int AUTHOR_SUGGESTION_WEIGHT = 2;
+    private static final int ISBN_SUGGESTION_WEIGHT = 1;
+    
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    
+    private static final BookSearchIndex INSTANCE = new BookSearchIndex();
+    
+    // term -> (bookId -> weight), sorted so a prefix maps to a contiguous range of terms
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // bookId -> terms indexed for it, needed to remove or replace a book
+    private final Map<Long, Set<String>> documentTerms = new HashMap<>();
+    private final SuggestionTrie suggestions = new SuggestionTrie(SUGGEST_MAX_DEPTH, SUGGEST_COMPLETIONS);
+    // bookId -> title/ISBN suggestions and referenced authors, needed to remove or replace a book
+    private final Map<Long, BookSuggestions> bookSuggestions = new HashMap<>();
+    // authorId -> author suggestion, shared by all indexed books of that author
+    private final Map<Long, AuthorSuggestion> authorSuggestions = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean buildStarted = new AtomicBoolean();
+    // IDs indexed or removed by live changes while a build runs; the build's older copies are skipped
+    private Set<Long> changedDuringBuild;
+    private volatile boolean ready;
+    
+    private BookSearchIndex() {
+    }
+    
+    /**
+     * Get the shared index instance
+     */
+    public static BookSearchIndex getInstance() {
+        return INSTANCE;
+    }
+    
+    /**
+     * Check whether the initial build has completed and search results are complete
+     */
+    public boolean isReady() {
+        return ready;
+    }
+    
+    /**
+     * Start loading the whole catalog on a background thread, if not already started
+     */
+    public void buildAsync() {
+        if (!buildStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "book-search-index-builder");
+        builder.setDaemon(true);
+        builder.start();
+    }
+    
+    private void build() {
+        lock.writeLock().lock();
+        try {
+            changedDuringBuild = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            BookDAO bookDAO = new BookDAO();
+            long started = System.currentTimeMillis();
+            int indexed = 0;
+            Long afterId = null;
+            List<Book> page;
+            do {
+                page = bookDAO.findPageWithDetails(afterId, BUILD_PAGE_SIZE);
+                for (Book book : page) {
+                    apply(new Document(book), true);
+                    afterId = book.getBookId();
+                }
+                indexed += page.size();
+            } while (page.size() == BUILD_PAGE_SIZE);
+            ready = true;
+            System.err.println("Book search index built: " + indexed + " books in "
+                + (System.currentTimeMillis() - started) + " ms");
+        } catch (Exception e) {
+            System.err.println("Error building book search index: " + e.getMessage());
+            e.printStackTrace();
+            buildStarted.set(false);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                changedDuringBuild = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    
+    /**
+     * Add a book to the index, replacing any previously indexed version of it. The book is read
+     * now; the index changes when the current unit of work commits, and not at all on rollback.
+     */
+    public void index(Book book) {
+        Document document = new Document(book);
+        JPAUtil.afterCommit(() -> apply(document, false));
+    }
+    
+    /**
+     * Remove a book from the index when the current unit of work commits
+     */
+    public void remove(Long bookId) {
+        JPAUtil.afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (changedDuringBuild != null) {
+                    changedDuringBuild.add(bookId);
+                }
+                removeTerms(bookId);
+                removeSuggestions(bookId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    private void apply(Document document, boolean fromBuild) {
+        lock.writeLock().lock();
+        try {
+            if (changedDuringBuild != null) {
+                if (fromBuild && changedDuringBuild.contains(document.bookId)) {
+                    return;
+                }
+                if (!fromBuild) {
+                    changedDuringBuild.add(document.bookId);
+                }
+            }
+            removeTerms(document.bookId);
+            for (Map.Entry<String, Integer> term : document.terms.entrySet()) {
+                postings.computeIfAbsent(term.getKey(), k -> new HashMap<>()).put(document.bookId, term.getValue());
+            }
+            documentTerms.put(document.bookId, new HashSet<>(document.terms.keySet()));
+            addSuggestions(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    private void removeTerms(Long bookId) {
+        Set<String> terms = documentTerms.remove(bookId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(bookId);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+    
+    private void addSuggestions(Document book) {
+        removeSuggestions(book.bookId);
+        
+        BookSuggestions entry = new BookSuggestions();
+        if (book.title != null) {
+            entry.title = new Suggestion(book.title, "title", book.bookId, TITLE_SUGGESTION_WEIGHT);
+            addSuggestion(entry.title);
+        }
+        if (book.isbn != null) {
+            entry.isbn = new Suggestion(book.isbn, "isbn", book.bookId, ISBN_SUGGESTION_WEIGHT);
+            addSuggestion(entry.isbn);
+        }
+        for (Author author : book.authors) {
+            if (author.getAuthorId() == null || author.getAuthorName() == null) {
+                continue;
+            }
+            AuthorSuggestion shared = authorSuggestions.get(author.getAuthorId());
+            if (shared != null && !shared.suggestion.getText().equals(author.getAuthorName())) {
+                // Author renamed since it was indexed: re-key it for every book that references it
+                removeSuggestion(shared.suggestion);
+                shared.suggestion = new Suggestion(author.getAuthorName(), "author",
+                    author.getAuthorId(), AUTHOR_SUGGESTION_WEIGHT);
+                addSuggestion(shared.suggestion);
+            }
+            if (shared == null) {
+                shared = new AuthorSuggestion();
+                shared.suggestion = new Suggestion(author.getAuthorName(), "author",
+                    author.getAuthorId(), AUTHOR_SUGGESTION_WEIGHT);
+                addSuggestion(shared.suggestion);
+                authorSuggestions.put(author.getAuthorId(), shared);
+            }
+            shared.books++;
+            entry.authorIds.add(author.getAuthorId());
+        }
+        bookSuggestions.put(book.bookId, entry);
+    }
+    
+    private void removeSuggestions(Long bookId) {
+        BookSuggestions entry = bookSuggestions.remove(bookId);
+        if (entry == null) {
+            return;
+        }
+        if (entry.title != null) {
+            removeSuggestion(entry.title);
+        }
+        if (entry.isbn != null) {
+            removeSuggestion(entry.isbn);
+        }
+        for (Long authorId : entry.authorIds) {
+            AuthorSuggestion shared = authorSuggestions.get(authorId);
+            if (shared != null && --shared.books == 0) {
+                removeSuggestion(shared.suggestion);
+                authorSuggestions.remove(authorId);
+            }
+        }
+    }
+    
+    private void addSuggestion(Suggestion suggestion) {
+        for (String key : suggestionKeys(suggestion)) {
+            suggestions.add(key, suggestion);
+        }
+    }
+    
+    private void removeSuggestion(Suggestion suggestion) {
+        for (String key : suggestionKeys(suggestion)) {
+            suggestions.remove(key, suggestion);
+        }
+    }
+    
+    /**
+     * Trie keys of a suggestion: the whole normalized text plus the text from each later
+     * word start, so "hundred" completes "One Hundred Years of Solitude". ISBNs are also
+     * keyed without separators.
+     */
+    private static Set<String> suggestionKeys(Suggestion suggestion) {
+        List<String> tokens = tokenize(suggestion.getText());
+        Set<String> keys = new HashSet<>();
+        for (int start = 0; start < tokens.size() && start < SUGGEST_MAX_WORD_STARTS; start++) {
+            keys.add(String.join(" ", tokens.subList(start, tokens.size())));
+        }
+        if ("isbn".equals(suggestion.getType())) {
+            keys.add(String.join("", tokens));
+        }
+        keys.remove("");
+        return keys;
+    }
+    
+    /**
+     * Get autocomplete suggestions (titles, author names, ISBNs) for what the user has typed so far
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        String key = String.join(" ", tokenize(prefix));
+        if (key.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            return suggestions.complete(key, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * Find the IDs of the best matching books, best first. Every query token must match a term
+     * of the book, either exactly or as a prefix; exact matches score higher.
+     */
+    public List<Long> search(String query, int limit) {
+        List<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String token : tokens) {
+                Map<Long, Integer> matches = match(token);
+                if (scores == null) {
+                    scores = matches;
+                } else {
+                    Map<Long, Integer> combined = new HashMap<>();
+                    Map<Long, Integer> smaller = scores.size() <= matches.size() ? scores : matches;
+                    Map<Long, Integer> larger = smaller == scores ? matches : scores;
+                    for (Map.Entry<Long, Integer> entry : smaller.entrySet()) {
+                        Integer other = larger.get(entry.getKey());
+                        if (other != null) {
+                            combined.put(entry.getKey(), entry.getValue() + other);
+                        }
+                    }
+                    scores = combined;
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+            return topResults(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private Map<Long, Integer> match(String token) {
+        Map<Long, Integer> matches = new HashMap<>();
+        Collection<Map.Entry<String, Map<Long, Integer>>> terms;
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            terms = postings.subMap(token, true, token + Character.MAX_VALUE, false).entrySet();
+        } else {
+            Map<Long, Integer> exact = postings.get(token);
+            terms = exact != null ? List.of(Map.entry(token, exact)) : List.of();
+        }
+        
+        for (Map.Entry<String, Map<Long, Integer>> term : terms) {
+            boolean exact = term.getKey().equals(token);
+            for (Map.Entry<Long, Integer> doc : term.getValue().entrySet()) {
+                // Prefix-only matches count half, so "king" ranks "King" above "Kingdom"
+                int score = exact ? doc.getValue() * 2 : doc.getValue();
+                matches.merge(doc.getKey(), score, Math::max);
+            }
+        }
+        return matches;
+    }
+    
+    private static List<Long> topResults(Map<Long, Integer> scores, int limit) {
+        Comparator<Map.Entry<Long, Integer>> ranking = Map.Entry.<Long, Integer>comparingByValue()
+            .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed());
+        
+        // Min-heap of the best `limit` entries; the weakest is evicted first
+        PriorityQueue<Map.Entry<Long, Integer>> best = new PriorityQueue<>(ranking);
+        for (Map.Entry<Long, Integer> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        
+        List<Long> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(best.poll().getKey());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+    
+    /**
+     * Get index size information
+     */
+    public Map<String, Object> getStatistics() {
+        lock.readLock().lock();
+        try {
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("ready", ready);
+            stats.put("books", documentTerms.size());
+            stats.put("terms", postings.size());
+            stats.put("suggestionNodes", suggestions.getNodeCount());
+            return stats;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private static void addTerms(Map<String, Integer> terms, String text, int weight) {
+        for (String token : tokenize(text)) {
+            terms.merge(token, weight, Math::max);
+        }
+    }
+    
+    /**
+     * Split text into lower-case, accent-free tokens
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(normalize(text))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+    
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase();
+    }
+    
+    /**
+     * What the index keeps of a book, read while its EntityManager is still open
+     */
+    private static final class Document {
+        private final Long bookId;
+        private final String title;
+        private final String isbn;
+        private final List<Author> authors;
+        private final Map<String, Integer> terms = new HashMap<>();
+        
+        Document(Book book) {
+            this.bookId = book.getBookId();
+            this.title = book.getTitle();
+            this.isbn = book.getIsbn();
+            this.authors = new ArrayList<>(book.getAuthors());
+            addTerms(terms, book.getTitle(), TITLE_WEIGHT);
+            addTerms(terms, book.getSubtitle(), SUBTITLE_WEIGHT);
+            addTerms(terms, book.getPublisher(), PUBLISHER_WEIGHT);
+            addTerms(terms, book.getDescription(), DESCRIPTION_WEIGHT);
+            for (Author author : authors) {
+                addTerms(terms, author.getAuthorName(), AUTHOR_WEIGHT);
+            }
+            if (isbn != null) {
+                // Index the ISBN both as written and without separators, so "978-0" and "9780" both match
+                addTerms(terms, isbn, ISBN_WEIGHT);
+                terms.merge(normalize(isbn).replaceAll("[^\\p{L}\\p{N}]", ""), ISBN_WEIGHT, Math::max);
+            }
+            terms.remove("");
+        }
+    }
+    
+    private static class BookSuggestions {
+        private Suggestion title;
+        private Suggestion isbn;
+        private final List<Long> authorIds = new ArrayList<>();
+    }
+    
+    private static class AuthorSuggestion {
+        private Suggestion suggestion;
+        private int books;
+    }
+}
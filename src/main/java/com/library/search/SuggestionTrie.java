@@ -0,0 +1,262 @@
+package com.library.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Prefix trie for autocomplete. Every node keeps its best completions precomputed, so a lookup
+ * costs one walk down the prefix. Keys are truncated to a maximum depth and each node holds at
+ * most a fixed number of completions, which bounds memory by the total indexed key length.
+ * Not thread-safe; callers synchronize access.
+ */
+public class SuggestionTrie {
+    
+    private static final char[] NO_LABELS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Suggestion[] NO_SUGGESTIONS = new Suggestion[0];
+    
+    // Better suggestions first: higher weight, then shorter text, then alphabetical
+    private static final Comparator<Suggestion> RANKING = Comparator
+        .comparingInt(Suggestion::getWeight).reversed()
+        .thenComparingInt(s -> s.getText().length())
+        .thenComparing(Suggestion::getText)
+        .thenComparing(Suggestion::getType)
+        .thenComparingLong(Suggestion::getId);
+    
+    private final int maxDepth;
+    private final int completionsPerNode;
+    private final Node root = new Node();
+    private int nodeCount = 1;
+    
+    public SuggestionTrie(int maxDepth, int completionsPerNode) {
+        this.maxDepth = maxDepth;
+        this.completionsPerNode = completionsPerNode;
+    }
+    
+    /**
+     * Add a suggestion under a normalized key
+     */
+    public void add(String key, Suggestion suggestion) {
+        String path = truncate(key);
+        Node node = root;
+        offer(node, suggestion);
+        for (int i = 0; i < path.length(); i++) {
+            node = node.childOrCreate(path.charAt(i));
+            offer(node, suggestion);
+        }
+        if (node.terminals == null) {
+            node.terminals = new ArrayList<>(1);
+        }
+        node.terminals.add(suggestion);
+    }
+    
+    /**
+     * Remove a suggestion previously added under the same key
+     */
+    public void remove(String key, Suggestion suggestion) {
+        String path = truncate(key);
+        Node[] nodes = new Node[path.length() + 1];
+        nodes[0] = root;
+        for (int i = 0; i < path.length(); i++) {
+            nodes[i + 1] = nodes[i].child(path.charAt(i));
+            if (nodes[i + 1] == null) {
+                return;
+            }
+        }
+        
+        Node last = nodes[path.length()];
+        if (last.terminals == null || !last.terminals.remove(suggestion)) {
+            return;
+        }
+        if (last.terminals.isEmpty()) {
+            last.terminals = null;
+        }
+        
+        // Recompute completions bottom-up wherever the removed suggestion was listed
+        for (int depth = path.length(); depth >= 0; depth--) {
+            Node node = nodes[depth];
+            if (depth > 0 && node.terminals == null && node.labels.length == 0) {
+                nodes[depth - 1].removeChild(path.charAt(depth - 1));
+                continue;
+            }
+            if (contains(node.top, suggestion)) {
+                recompute(node);
+            }
+        }
+    }
+    
+    /**
+     * Get the best completions of a normalized prefix, best first.
+     * Prefixes longer than the maximum depth are matched on their leading characters.
+     */
+    public List<Suggestion> complete(String prefix, int limit) {
+        String path = truncate(prefix);
+        Node node = root;
+        for (int i = 0; i < path.length() && node != null; i++) {
+            node = node.child(path.charAt(i));
+        }
+        if (node == null) {
+            return new ArrayList<>();
+        }
+        int count = Math.min(limit, node.top.length);
+        return new ArrayList<>(Arrays.asList(node.top).subList(0, count));
+    }
+    
+    /**
+     * Number of trie nodes, for memory monitoring
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+    
+    private String truncate(String key) {
+        return key.length() > maxDepth ? key.substring(0, maxDepth) : key;
+    }
+    
+    private void offer(Node node, Suggestion suggestion) {
+        Suggestion[] top = node.top;
+        if (contains(top, suggestion)) {
+            return;
+        }
+        if (top.length == completionsPerNode && RANKING.compare(suggestion, top[top.length - 1]) >= 0) {
+            return;
+        }
+        
+        int position = 0;
+        while (position < top.length && RANKING.compare(top[position], suggestion) < 0) {
+            position++;
+        }
+        int size = Math.min(top.length + 1, completionsPerNode);
+        Suggestion[] updated = new Suggestion[size];
+        System.arraycopy(top, 0, updated, 0, position);
+        updated[position] = suggestion;
+        System.arraycopy(top, position, updated, position + 1, size - position - 1);
+        node.top = updated;
+    }
+    
+    private void recompute(Node node) {
+        List<Suggestion> candidates = new ArrayList<>();
+        if (node.terminals != null) {
+            candidates.addAll(node.terminals);
+        }
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        node.top = candidates.stream()
+            .distinct()
+            .sorted(RANKING)
+            .limit(completionsPerNode)
+            .toArray(Suggestion[]::new);
+    }
+    
+    private static boolean contains(Suggestion[] suggestions, Suggestion suggestion) {
+        for (Suggestion s : suggestions) {
+            if (s.equals(suggestion)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private class Node {
+        private char[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private Suggestion[] top = NO_SUGGESTIONS;
+        private List<Suggestion> terminals;
+        
+        Node child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index >= 0 ? children[index] : null;
+        }
+        
+        Node childOrCreate(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            Node created = new Node();
+            char[] newLabels = new char[labels.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(labels, 0, newLabels, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newLabels[insertAt] = label;
+            newChildren[insertAt] = created;
+            System.arraycopy(labels, insertAt, newLabels, insertAt + 1, labels.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            labels = newLabels;
+            children = newChildren;
+            nodeCount++;
+            return created;
+        }
+        
+        void removeChild(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            if (index < 0) {
+                return;
+            }
+            char[] newLabels = new char[labels.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(labels, 0, newLabels, 0, index);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(labels, index + 1, newLabels, index, labels.length - index - 1);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            labels = newLabels;
+            children = newChildren;
+            nodeCount--;
+        }
+    }
+    
+    /**
+     * A completion: the text shown to the user and the book or author it refers to
+     */
+    public static final class Suggestion {
+        private final String text;
+        private final String type;
+        private final long id;
+        private final int weight;
+        
+        public Suggestion(String text, String type, long id, int weight) {
+            this.text = text;
+            this.type = type;
+            this.id = id;
+            this.weight = weight;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        public String getType() {
+            return type;
+        }
+        
+        public long getId() {
+            return id;
+        }
+        
+        public int getWeight() {
+            return weight;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Suggestion)) {
+                return false;
+            }
+            Suggestion other = (Suggestion) o;
+            return id == other.id && type.equals(other.type) && text.equals(other.text);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(text, type, id);
+        }
+    }
+}
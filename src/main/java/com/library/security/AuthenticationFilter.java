@@ -0,0 +1,69 @@
+package com.library.security;
+
+import io.jsonwebtoken.Claims;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.SecurityContext;
+import jakarta.ws.rs.ext.Provider;
+
+import java.security.Principal;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Authenticates requests from the Bearer token alone: the JWT is verified (cached by JWTUtil)
+ * and checked against RevokedUserCache, without reading the users table. Requests without a
+ * valid token continue unauthenticated; resources that need a user check the SecurityContext.
+ */
+@Provider
+@Priority(Priorities.AUTHENTICATION)
+public class AuthenticationFilter implements ContainerRequestFilter {
+    
+    private static final String BEARER_PREFIX = "Bearer ";
+    
+    @Override
+    public void filter(ContainerRequestContext requestContext) {
+        String authHeader = requestContext.getHeaderString(HttpHeaders.AUTHORIZATION);
+        if (authHeader == null || !authHeader.startsWith(BEARER_PREFIX)) {
+            return;
+        }
+        
+        Optional<Claims> claims = JWTUtil.getValidClaims(authHeader.substring(BEARER_PREFIX.length()));
+        if (claims.isEmpty()) {
+            return;
+        }
+        
+        UserPrincipal principal = UserPrincipal.fromClaims(claims.get());
+        Date issuedAt = claims.get().getIssuedAt();
+        if (principal.getUserId() == null
+                || RevokedUserCache.isRevoked(principal.getUserId(), issuedAt != null ? issuedAt.getTime() : null)) {
+            return;
+        }
+        
+        boolean secure = requestContext.getSecurityContext().isSecure();
+        requestContext.setSecurityContext(new SecurityContext() {
+            @Override
+            public Principal getUserPrincipal() {
+                return principal;
+            }
+            
+            @Override
+            public boolean isUserInRole(String role) {
+                return role.equals(principal.getRole());
+            }
+            
+            @Override
+            public boolean isSecure() {
+                return secure;
+            }
+            
+            @Override
+            public String getAuthenticationScheme() {
+                return "Bearer";
+            }
+        });
+    }
+}
@@ -1,15 +1,27 @@
 package com.library.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import com.library.entity.User;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Utility class for JWT token generation and validation
@@ -20,7 +32,39 @@ public class JWTUtil {
     private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
     
     // Token expiration time: 24 hours
-    private static final long EXPIRATION_TIME = 24 * 60 * 60 * 1000;
+    static final long EXPIRATION_TIME = 24 * 60 * 60 * 1000;
+    
+    // Parsers are immutable and thread-safe, so one instance serves every request
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
+    
+    // Verified claims keyed by token digest; each entry lives until its token expires
+    private static final int CLAIMS_CACHE_SIZE = 10_000;
+    private static final Cache<String, Claims> CLAIMS_CACHE = Caffeine.newBuilder()
+            .maximumSize(CLAIMS_CACHE_SIZE)
+            .expireAfter(new Expiry<String, Claims>() {
+                @Override
+                public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                    Date expiration = claims.getExpiration();
+                    long remainingMillis = expiration == null
+                            ? EXPIRATION_TIME
+                            : expiration.getTime() - System.currentTimeMillis();
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMillis, 0));
+                }
+                
+                @Override
+                public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+                
+                @Override
+                public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
     
     /**
      * Generate JWT token for a user
@@ -50,14 +94,19 @@ public class JWTUtil {
      * @return true if valid, false otherwise
      */
     public static boolean validateToken(String token) {
+        return getValidClaims(token).isPresent();
+    }
+    
+    /**
+     * Get the claims of a token if its signature is valid and it has not expired
+     * @param token The JWT token
+     * @return claims, or empty if the token is invalid
+     */
+    public static Optional<Claims> getValidClaims(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token);
-            return true;
+            return Optional.of(getClaimsFromToken(token));
         } catch (Exception e) {
-            return false;
+            return Optional.empty();
         }
     }
     
@@ -91,16 +140,42 @@ public class JWTUtil {
     }
     
     /**
-     * Extract all claims from JWT token
+     * Extract all claims from JWT token. The signature is verified once per token;
+     * later calls are served from the claims cache until the token expires.
      * @param token The JWT token
      * @return Claims object
+     * @throws io.jsonwebtoken.JwtException if the token is invalid or expired
      */
     public static Claims getClaimsFromToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return CLAIMS_CACHE.get(digest(token), key -> PARSER.parseClaimsJws(token).getBody());
+    }
+    
+    /**
+     * Get claims cache hit/miss statistics
+     */
+    public static Map<String, Object> getCacheStatistics() {
+        CacheStats stats = CLAIMS_CACHE.stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", CLAIMS_CACHE.estimatedSize());
+        result.put("maxSize", CLAIMS_CACHE_SIZE);
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("verificationFailures", stats.loadFailureCount());
+        result.put("evictionCount", stats.evictionCount());
+        return result;
+    }
+    
+    /**
+     * SHA-256 of the token, so the cache never holds usable credentials
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
     
     /**
@@ -0,0 +1,132 @@
+package com.library.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.library.util.JPAUtil;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts failed logins per username and per client address in fixed time windows.
+ * Once either limit is reached, further attempts are refused without running BCrypt
+ * until the window ends.
+ */
+public class LoginThrottle {
+    
+    private static final int MAX_FAILURES_PER_USERNAME = JPAUtil.getIntConfig("auth.throttle.maxFailuresPerUsername", 5);
+    private static final int MAX_FAILURES_PER_ADDRESS = JPAUtil.getIntConfig("auth.throttle.maxFailuresPerAddress", 20);
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(
+        JPAUtil.getIntConfig("auth.throttle.windowSeconds", 900));
+    
+    // "user:<name>" or "addr:<ip>" -> failures in the current window; entries expire with their window
+    private static final Cache<String, Window> FAILURES = Caffeine.newBuilder()
+        .maximumSize(100_000)
+        .expireAfter(new Expiry<String, Window>() {
+            @Override
+            public long expireAfterCreate(String key, Window window, long currentTime) {
+                return WINDOW_NANOS;
+            }
+            
+            @Override
+            public long expireAfterUpdate(String key, Window window, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+            
+            @Override
+            public long expireAfterRead(String key, Window window, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        })
+        .build();
+    
+    private static final LongAdder throttled = new LongAdder();
+    private static final LongAdder failures = new LongAdder();
+    
+    private LoginThrottle() {
+    }
+    
+    /**
+     * Get the number of seconds the caller must wait before trying again, or 0 if the attempt may proceed
+     * @param username the submitted username or email, may be null
+     * @param clientAddress the client IP address, may be null
+     */
+    public static long getRetryAfterSeconds(String username, String clientAddress) {
+        long waitNanos = Math.max(
+            waitNanos(usernameKey(username), MAX_FAILURES_PER_USERNAME),
+            waitNanos(addressKey(clientAddress), MAX_FAILURES_PER_ADDRESS));
+        if (waitNanos <= 0) {
+            return 0;
+        }
+        throttled.increment();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+    
+    /**
+     * Record a failed attempt (unknown user or wrong password)
+     */
+    public static void recordFailure(String username, String clientAddress) {
+        failures.increment();
+        increment(usernameKey(username));
+        increment(addressKey(clientAddress));
+    }
+    
+    /**
+     * Clear the username's failures after a successful login; the address keeps its count
+     */
+    public static void recordSuccess(String username) {
+        String key = usernameKey(username);
+        if (key != null) {
+            FAILURES.invalidate(key);
+        }
+    }
+    
+    /**
+     * Get throttling statistics
+     */
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("trackedKeys", FAILURES.estimatedSize());
+        stats.put("failedAttempts", failures.sum());
+        stats.put("throttledAttempts", throttled.sum());
+        stats.put("maxFailuresPerUsername", MAX_FAILURES_PER_USERNAME);
+        stats.put("maxFailuresPerAddress", MAX_FAILURES_PER_ADDRESS);
+        stats.put("windowSeconds", TimeUnit.NANOSECONDS.toSeconds(WINDOW_NANOS));
+        return stats;
+    }
+    
+    private static long waitNanos(String key, int maxFailures) {
+        if (key == null) {
+            return 0;
+        }
+        Window window = FAILURES.getIfPresent(key);
+        if (window == null || window.failures.get() < maxFailures) {
+            return 0;
+        }
+        return window.startedAt + WINDOW_NANOS - System.nanoTime();
+    }
+    
+    private static void increment(String key) {
+        if (key != null) {
+            FAILURES.get(key, k -> new Window()).failures.incrementAndGet();
+        }
+    }
+    
+    private static String usernameKey(String username) {
+        return username == null || username.isBlank() ? null : "user:" + username.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static String addressKey(String clientAddress) {
+        return clientAddress == null || clientAddress.isBlank() ? null : "addr:" + clientAddress;
+    }
+    
+    private static class Window {
+        private final long startedAt = System.nanoTime();
+        private final AtomicInteger failures = new AtomicInteger();
+    }
+}
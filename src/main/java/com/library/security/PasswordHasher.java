@@ -0,0 +1,172 @@
+package com.library.security;
+
+import com.library.util.JPAUtil;
+import com.library.util.LatencyHistogram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded worker pool for BCrypt work, so login bursts cannot occupy every container thread.
+ * Work beyond the pool size waits in a fixed-size queue; when the queue is full, submissions
+ * are rejected immediately and callers answer 429 instead of piling up requests.
+ * Background cost upgrades use a separate single-thread pool, so they never take queue
+ * slots from logins.
+ */
+public class PasswordHasher {
+    
+    private static final int THREADS = Math.max(1,
+        JPAUtil.getIntConfig("auth.hash.threads", Runtime.getRuntime().availableProcessors()));
+    private static final int QUEUE_SIZE = Math.max(1, JPAUtil.getIntConfig("auth.hash.queueSize", 64));
+    private static final int REHASH_QUEUE_SIZE = Math.max(1, JPAUtil.getIntConfig("auth.hash.rehashQueueSize", 16));
+    
+    private static final ThreadPoolExecutor EXECUTOR = createExecutor("password-hasher-", THREADS, QUEUE_SIZE);
+    private static final ThreadPoolExecutor REHASH_EXECUTOR = createExecutor("password-rehasher-", 1, REHASH_QUEUE_SIZE);
+    
+    private static final LatencyHistogram hashLatency = new LatencyHistogram();
+    private static final LatencyHistogram queueWait = new LatencyHistogram();
+    private static final LongAdder rejected = new LongAdder();
+    private static final LongAdder rehashed = new LongAdder();
+    private static final LongAdder rehashesSkipped = new LongAdder();
+    
+    private PasswordHasher() {
+    }
+    
+    private static ThreadPoolExecutor createExecutor(String namePrefix, int threads, int queueSize) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize),
+            runnable -> {
+                Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * Run work that verifies or hashes passwords on the hashing pool
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public static <T> CompletableFuture<T> submit(Supplier<T> task) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - queuedAt);
+                return task.get();
+            }, EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+    
+    /**
+     * Verify a password on the calling thread, recording the hash latency
+     */
+    public static boolean verify(String plainPassword, String hashedPassword) {
+        long start = System.nanoTime();
+        try {
+            return PasswordUtil.verifyPassword(plainPassword, hashedPassword);
+        } finally {
+            hashLatency.record(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Hash a password on the calling thread, recording the hash latency
+     */
+    public static String hash(String plainPassword) {
+        long start = System.nanoTime();
+        try {
+            return PasswordUtil.hashPassword(plainPassword);
+        } finally {
+            hashLatency.record(System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Set the BCrypt cost for new hashes: auth.bcrypt.rounds when configured, otherwise the
+     * highest cost that hashes within auth.bcrypt.targetMillis on this host
+     */
+    public static void configureCost() {
+        int configured = JPAUtil.getIntConfig("auth.bcrypt.rounds", 0);
+        if (configured > 0) {
+            PasswordUtil.setRounds(configured);
+        } else {
+            PasswordUtil.setRounds(PasswordUtil.calibrate(
+                JPAUtil.getIntConfig("auth.bcrypt.targetMillis", 250),
+                JPAUtil.getIntConfig("auth.bcrypt.minRounds", 10),
+                JPAUtil.getIntConfig("auth.bcrypt.maxRounds", 14)));
+        }
+        System.err.println("BCrypt cost factor set to " + PasswordUtil.getRounds());
+    }
+    
+    /**
+     * Replace a hash whose cost is below the current one, in the background.
+     * The update only applies if the stored hash is unchanged; when the rehash queue is
+     * full the upgrade is skipped and retried on a later login.
+     * @param store writes the new hash given (old hash, new hash) and reports whether it applied
+     */
+    public static void rehashInBackground(String plainPassword, String currentHash, BiPredicate<String, String> store) {
+        try {
+            REHASH_EXECUTOR.execute(() -> {
+                try {
+                    if (store.test(currentHash, PasswordUtil.hashPassword(plainPassword))) {
+                        rehashed.increment();
+                    }
+                } catch (Exception e) {
+                    System.err.println("Error upgrading password hash: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Not worth a 429; the next successful login tries again
+            rehashesSkipped.increment();
+        }
+    }
+    
+    /**
+     * Rough time until a queued task would start, used as the Retry-After of rejected work
+     */
+    public static long estimateRetryAfterSeconds() {
+        double queuedMillis = EXECUTOR.getQueue().size() * hashLatency.getMeanMillis() / THREADS;
+        return Math.max(1, (long) Math.ceil(queuedMillis / 1000.0));
+    }
+    
+    /**
+     * Get pool, queue and latency statistics
+     */
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("threads", THREADS);
+        stats.put("activeThreads", EXECUTOR.getActiveCount());
+        stats.put("queueDepth", EXECUTOR.getQueue().size());
+        stats.put("queueCapacity", QUEUE_SIZE);
+        stats.put("completedTasks", EXECUTOR.getCompletedTaskCount());
+        stats.put("rejectedTasks", rejected.sum());
+        stats.put("bcryptRounds", PasswordUtil.getRounds());
+        stats.put("rehashedPasswords", rehashed.sum());
+        stats.put("rehashQueueDepth", REHASH_EXECUTOR.getQueue().size());
+        stats.put("skippedRehashes", rehashesSkipped.sum());
+        stats.put("hashLatency", hashLatency.snapshot());
+        stats.put("queueWait", queueWait.snapshot());
+        return stats;
+    }
+    
+    /**
+     * Stop accepting work and let queued tasks finish
+     */
+    public static void shutdown() {
+        EXECUTOR.shutdown();
+        REHASH_EXECUTOR.shutdown();
+    }
+}
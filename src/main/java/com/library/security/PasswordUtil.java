@@ -7,7 +7,14 @@ import org.mindrot.jbcrypt.BCrypt;
  */
 public class PasswordUtil {
     
-    private static final int BCRYPT_ROUNDS = 10;
+    private static final int DEFAULT_BCRYPT_ROUNDS = 10;
+    private static final int MIN_BCRYPT_ROUNDS = 4;
+    private static final int MAX_BCRYPT_ROUNDS = 31;
+    
+    // Cost used for new hashes; stored hashes with a lower cost are upgraded on login
+    private static volatile int bcryptRounds = DEFAULT_BCRYPT_ROUNDS;
+    // Set once the cost has been configured or calibrated; until then the default is provisional
+    private static volatile boolean roundsSet;
     
     /**
      * Hash a plain text password using BCrypt
@@ -15,7 +22,7 @@ public class PasswordUtil {
      * @return The hashed password
      */
     public static String hashPassword(String plainPassword) {
-        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(BCRYPT_ROUNDS));
+        return BCrypt.hashpw(plainPassword, BCrypt.gensalt(bcryptRounds));
     }
     
     /**
@@ -31,5 +38,84 @@ public class PasswordUtil {
             return false;
         }
     }
+    
+    /**
+     * Get the cost factor (log2 rounds) used for new hashes
+     */
+    public static int getRounds() {
+        return bcryptRounds;
+    }
+    
+    /**
+     * Set the cost factor used for new hashes
+     * @throws IllegalArgumentException if rounds is outside 4..31
+     */
+    public static void setRounds(int rounds) {
+        if (rounds < MIN_BCRYPT_ROUNDS || rounds > MAX_BCRYPT_ROUNDS) {
+            throw new IllegalArgumentException("BCrypt rounds must be between "
+                + MIN_BCRYPT_ROUNDS + " and " + MAX_BCRYPT_ROUNDS);
+        }
+        bcryptRounds = rounds;
+        roundsSet = true;
+    }
+    
+    /**
+     * Read the cost factor of a stored hash ("$2a$10$..." gives 10)
+     * @return the cost, or -1 if the hash is not in BCrypt format
+     */
+    public static int getCost(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return -1;
+        }
+        int costStart = hashedPassword.indexOf('$', 1) + 1;
+        if (costStart <= 0 || costStart + 2 >= hashedPassword.length()
+                || hashedPassword.charAt(costStart + 2) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(costStart, costStart + 2));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Check whether a stored hash should be replaced by one with the current cost. Only weaker
+     * hashes are upgraded, so hashes do not flip between costs calibrated on different nodes
+     * or restarts, and nothing is rehashed before the cost has been set.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        return roundsSet && getCost(hashedPassword) < bcryptRounds;
+    }
+    
+    /**
+     * Find the highest cost whose hash time on this host stays within the target.
+     * Each extra round doubles the work, so costs are measured upwards until the next would exceed it.
+     * @param targetMillis the acceptable time for one hash or verification
+     * @param minRounds the cost to use even if it exceeds the target
+     * @param maxRounds the highest cost considered
+     */
+    public static int calibrate(long targetMillis, int minRounds, int maxRounds) {
+        int rounds = Math.max(minRounds, MIN_BCRYPT_ROUNDS);
+        int limit = Math.min(maxRounds, MAX_BCRYPT_ROUNDS);
+        
+        // Warm up so the first measurement is not dominated by class loading and JIT
+        BCrypt.hashpw("calibration", BCrypt.gensalt(MIN_BCRYPT_ROUNDS));
+        
+        long millis = timeHash(rounds);
+        while (rounds < limit && millis * 2 <= targetMillis) {
+            rounds++;
+            millis = timeHash(rounds);
+        }
+        if (millis > targetMillis && rounds > minRounds) {
+            rounds--;
+        }
+        return rounds;
+    }
+    
+    private static long timeHash(int rounds) {
+        long start = System.nanoTime();
+        BCrypt.hashpw("calibration", BCrypt.gensalt(rounds));
+        return (System.nanoTime() - start) / 1_000_000;
+    }
 }
-
@@ -0,0 +1,140 @@
+package com.library.security;
+
+import com.library.dao.UserDAO;
+import com.library.entity.User;
+import com.library.util.JPAUtil;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory record of users whose tokens must no longer be accepted, so requests can be
+ * authenticated from JWT claims without reading the users table.
+ * Inactive (suspended or deactivated) user IDs are loaded from the database and reloaded
+ * periodically to pick up changes made elsewhere; UserService reports changes made here
+ * as they commit. Role changes and deletions invalidate the tokens issued before them.
+ */
+public class RevokedUserCache {
+    
+    // Upper bound on how long a status change made outside this node goes unnoticed
+    private static final long RELOAD_INTERVAL_MILLIS = 5 * 60 * 1000;
+    
+    private static final Object lock = new Object();
+    private static final Object loadLock = new Object();
+    private static final AtomicBoolean reloading = new AtomicBoolean();
+    private static volatile Set<Long> inactiveUserIds;
+    private static volatile long loadedAt;
+    private static long localChanges;
+    
+    // userId -> tokens issued before this time (epoch millis) are rejected; an entry is
+    // dropped once every token it covers has expired
+    private static final Map<Long, Long> tokensInvalidBefore = new ConcurrentHashMap<>();
+    
+    private RevokedUserCache() {
+    }
+    
+    /**
+     * Check whether a token issued to the user at the given time has been revoked
+     * @param issuedAtMillis the token's iat claim, or null if absent
+     */
+    public static boolean isRevoked(Long userId, Long issuedAtMillis) {
+        Long cutoff = tokensInvalidBefore.get(userId);
+        if (cutoff != null && (issuedAtMillis == null || issuedAtMillis < cutoff)) {
+            return true;
+        }
+        return getInactiveUserIds().contains(userId);
+    }
+    
+    /**
+     * Record a user's new status; takes effect when the current unit of work commits
+     */
+    public static void statusChanged(Long userId, User.UserStatus status) {
+        JPAUtil.afterCommit(() -> applyStatus(userId, status));
+    }
+    
+    private static void applyStatus(Long userId, User.UserStatus status) {
+        Set<Long> ids = getInactiveUserIds();
+        synchronized (lock) {
+            if (status == User.UserStatus.ACTIVE) {
+                ids.remove(userId);
+            } else {
+                ids.add(userId);
+            }
+            localChanges++;
+        }
+    }
+    
+    /**
+     * Reject every token issued to the user until the current unit of work commits,
+     * e.g. after a role change
+     */
+    public static void revokeIssuedTokens(Long userId) {
+        JPAUtil.afterCommit(() -> tokensInvalidBefore.merge(userId, nextSecond(), Math::max));
+    }
+    
+    /**
+     * Reject every token of a deleted user once the deletion commits. The cutoff lies one
+     * token lifetime ahead, so it also covers a token from a login racing the deletion.
+     */
+    public static void userDeleted(Long userId) {
+        JPAUtil.afterCommit(() -> tokensInvalidBefore.merge(userId,
+            nextSecond() + JWTUtil.EXPIRATION_TIME, Math::max));
+    }
+    
+    // JWT iat has second precision, so cutoffs are rounded up to the next second
+    private static long nextSecond() {
+        return (System.currentTimeMillis() / 1000 + 1) * 1000;
+    }
+    
+    /**
+     * Number of users currently known to be inactive
+     */
+    public static int getInactiveUserCount() {
+        return getInactiveUserIds().size();
+    }
+    
+    private static Set<Long> getInactiveUserIds() {
+        if (inactiveUserIds == null) {
+            synchronized (loadLock) {
+                if (inactiveUserIds == null) {
+                    reload();
+                }
+            }
+        } else if (System.currentTimeMillis() - loadedAt > RELOAD_INTERVAL_MILLIS
+                && reloading.compareAndSet(false, true)) {
+            // One thread refreshes; the others keep using the current set meanwhile
+            try {
+                reload();
+            } catch (Exception e) {
+                System.err.println("Error reloading inactive users: " + e.getMessage());
+            } finally {
+                reloading.set(false);
+            }
+        }
+        return inactiveUserIds;
+    }
+    
+    private static void reload() {
+        long changesBefore;
+        synchronized (lock) {
+            changesBefore = localChanges;
+        }
+        
+        Set<Long> fresh = ConcurrentHashMap.newKeySet();
+        fresh.addAll(new UserDAO().findInactiveUserIds());
+        
+        synchronized (lock) {
+            // A change reported during the query may be missing from its result; keep the current set
+            if (inactiveUserIds == null || localChanges == changesBefore) {
+                inactiveUserIds = fresh;
+            }
+            loadedAt = System.currentTimeMillis();
+        }
+        
+        // Tokens issued before a cutoff older than the token lifetime have all expired
+        long expiredBefore = System.currentTimeMillis() - JWTUtil.EXPIRATION_TIME;
+        tokensInvalidBefore.values().removeIf(cutoff -> cutoff < expiredBefore);
+    }
+}
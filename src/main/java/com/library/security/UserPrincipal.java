@@ -0,0 +1,79 @@
+package com.library.security;
+
+import io.jsonwebtoken.Claims;
+
+import java.security.Principal;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Authenticated user of a request, built from verified JWT claims
+ */
+public class UserPrincipal implements Principal {
+    
+    private final Long userId;
+    private final String username;
+    private final String email;
+    private final String fullName;
+    private final String role;
+    
+    public UserPrincipal(Long userId, String username, String email, String fullName, String role) {
+        this.userId = userId;
+        this.username = username;
+        this.email = email;
+        this.fullName = fullName;
+        this.role = role;
+    }
+    
+    /**
+     * Build a principal from the claims written by JWTUtil.generateToken
+     */
+    public static UserPrincipal fromClaims(Claims claims) {
+        return new UserPrincipal(
+            claims.get("userId", Long.class),
+            claims.getSubject(),
+            claims.get("email", String.class),
+            claims.get("fullName", String.class),
+            claims.get("role", String.class)
+        );
+    }
+    
+    @Override
+    public String getName() {
+        return username;
+    }
+    
+    public Long getUserId() {
+        return userId;
+    }
+    
+    public String getUsername() {
+        return username;
+    }
+    
+    public String getEmail() {
+        return email;
+    }
+    
+    public String getFullName() {
+        return fullName;
+    }
+    
+    public String getRole() {
+        return role;
+    }
+    
+    /**
+     * User information map as carried in the token (without sensitive data)
+     */
+    public Map<String, Object> toUserInfo() {
+        Map<String, Object> userInfo = new HashMap<>();
+        userInfo.put("userId", userId);
+        userInfo.put("username", username);
+        userInfo.put("email", email);
+        userInfo.put("fullName", fullName);
+        userInfo.put("role", role);
+        userInfo.put("status", "ACTIVE");
+        return userInfo;
+    }
+}
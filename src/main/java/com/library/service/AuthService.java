@@ -1,14 +1,21 @@
 package com.library.service;
 
 import com.library.dao.UserDAO;
+import com.library.dto.UserDTO;
 import com.library.entity.User;
 import com.library.security.JWTUtil;
+import com.library.security.LoginThrottle;
+import com.library.security.PasswordHasher;
 import com.library.security.PasswordUtil;
+import io.jsonwebtoken.Claims;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
 
 /**
  * Service class for authentication operations
@@ -21,6 +28,15 @@ public class AuthService {
         this.userDAO = new UserDAO();
     }
     
+    /**
+     * Register a new user on the password hashing pool, leaving the request thread free.
+     * A rejected attempt completes immediately with a "retryAfter" value in seconds.
+     */
+    public CompletableFuture<Map<String, Object>> registerAsync(String username, String email, String password,
+                                                                String firstName, String lastName, String role) {
+        return onHashingPool(() -> register(username, email, password, firstName, lastName, role));
+    }
+    
     /**
      * Register a new user
      */
@@ -63,7 +79,7 @@ public class AuthService {
         
         try {
             // Create new user
-            User user = new User(username, email, PasswordUtil.hashPassword(password), firstName, lastName);
+            User user = new User(username, email, PasswordHasher.hash(password), firstName, lastName);
             
             // Set role
             if (role != null && !role.isEmpty()) {
@@ -80,6 +96,7 @@ public class AuthService {
             
             // Save user
             User savedUser = userDAO.save(user);
+            LibraryStatistics.userCreated(savedUser.getRole(), savedUser.getStatus());
             
             // Generate token
             String token = JWTUtil.generateToken(savedUser);
@@ -87,8 +104,8 @@ public class AuthService {
             response.put("success", true);
             response.put("message", "User registered successfully");
             response.put("token", token);
-            response.put("user", getUserInfo(savedUser));
-            
+            response.put("user", UserDTO.from(savedUser));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error registering user: " + e.getMessage());
@@ -101,6 +118,28 @@ public class AuthService {
      * Login user
      */
     public Map<String, Object> login(String username, String password) {
+        return login(username, password, null);
+    }
+    
+    /**
+     * Login user on the password hashing pool, leaving the request thread free.
+     * Throttled or rejected attempts complete immediately with a "retryAfter" value in seconds.
+     */
+    public CompletableFuture<Map<String, Object>> loginAsync(String username, String password, String clientAddress) {
+        long retryAfter = LoginThrottle.getRetryAfterSeconds(username, clientAddress);
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(
+                retryLater("Too many failed login attempts, please try again later", retryAfter));
+        }
+        
+        return onHashingPool(() -> login(username, password, clientAddress));
+    }
+    
+    /**
+     * Login user, counting failures per username and client address
+     * @param clientAddress the client IP address, or null when unknown
+     */
+    public Map<String, Object> login(String username, String password, String clientAddress) {
         Map<String, Object> response = new HashMap<>();
         
         // Validate input
@@ -116,6 +155,11 @@ public class AuthService {
             return response;
         }
         
+        long retryAfter = LoginThrottle.getRetryAfterSeconds(username, clientAddress);
+        if (retryAfter > 0) {
+            return retryLater("Too many failed login attempts, please try again later", retryAfter);
+        }
+        
         try {
             // Find user by username or email
             Optional<User> userOpt = userDAO.findByUsername(username);
@@ -124,6 +168,7 @@ public class AuthService {
             }
             
             if (userOpt.isEmpty()) {
+                LoginThrottle.recordFailure(username, clientAddress);
                 response.put("success", false);
                 response.put("message", "Invalid credentials");
                 return response;
@@ -139,15 +184,25 @@ public class AuthService {
             }
             
             // Verify password
-            if (!PasswordUtil.verifyPassword(password, user.getPasswordHash())) {
+            if (!PasswordHasher.verify(password, user.getPasswordHash())) {
+                LoginThrottle.recordFailure(username, clientAddress);
                 response.put("success", false);
                 response.put("message", "Invalid credentials");
                 return response;
             }
+            LoginThrottle.recordSuccess(username);
             
-            // Update last login
-            user.setLastLogin(LocalDateTime.now());
-            userDAO.update(user);
+            // Upgrade hashes made with a lower cost factor, off the response path
+            if (PasswordUtil.needsRehash(user.getPasswordHash())) {
+                Long userId = user.getUserId();
+                PasswordHasher.rehashInBackground(password, user.getPasswordHash(),
+                    (oldHash, newHash) -> userDAO.updatePasswordHashIfUnchanged(userId, oldHash, newHash));
+            }
+            
+            // Update last login (the loaded user is left untouched so a version conflict
+            // is retried on a fresh copy instead of failing the login)
+            LocalDateTime now = LocalDateTime.now();
+            user = userDAO.updateWithRetry(user.getUserId(), u -> u.setLastLogin(now)).orElse(user);
             
             // Generate token
             String token = JWTUtil.generateToken(user);
@@ -155,8 +210,8 @@ public class AuthService {
             response.put("success", true);
             response.put("message", "Login successful");
             response.put("token", token);
-            response.put("user", getUserInfo(user));
-            
+            response.put("user", UserDTO.from(user));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error during login: " + e.getMessage());
@@ -165,6 +220,30 @@ public class AuthService {
         return response;
     }
     
+    /**
+     * Run work that hashes or verifies passwords on the hashing pool. When its queue is full,
+     * completes immediately with a "retryAfter" value in seconds.
+     */
+    static CompletableFuture<Map<String, Object>> onHashingPool(Supplier<Map<String, Object>> task) {
+        try {
+            return PasswordHasher.submit(task);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(
+                retryLater("Server is busy, please try again shortly", PasswordHasher.estimateRetryAfterSeconds()));
+        }
+    }
+    
+    /**
+     * Response for an attempt that was refused before checking the password
+     */
+    static Map<String, Object> retryLater(String message, long retryAfterSeconds) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        response.put("retryAfter", retryAfterSeconds);
+        return response;
+    }
+    
     /**
      * Validate token and get user info
      */
@@ -172,13 +251,14 @@ public class AuthService {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            if (!JWTUtil.validateToken(token)) {
+            Optional<Claims> claims = JWTUtil.getValidClaims(token);
+            if (claims.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Invalid or expired token");
                 return response;
             }
             
-            Long userId = JWTUtil.getUserIdFromToken(token);
+            Long userId = claims.get().get("userId", Long.class);
             Optional<User> userOpt = userDAO.findById(userId);
             
             if (userOpt.isEmpty()) {
@@ -196,8 +276,8 @@ public class AuthService {
             }
             
             response.put("success", true);
-            response.put("user", getUserInfo(user));
-            
+            response.put("user", UserDTO.from(user));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error validating token: " + e.getMessage());
@@ -206,30 +286,29 @@ public class AuthService {
         return response;
     }
     
+    
     /**
-     * Get user information map (without sensitive data)
+     * Change password on the password hashing pool, leaving the request thread free.
+     * Wrong current passwords count as failed logins, so throttled or rejected attempts
+     * complete immediately with a "retryAfter" value in seconds.
      */
-    private Map<String, Object> getUserInfo(User user) {
-        Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", user.getUserId());
-        userInfo.put("username", user.getUsername());
-        userInfo.put("email", user.getEmail());
-        userInfo.put("firstName", user.getFirstName());
-        userInfo.put("lastName", user.getLastName());
-        userInfo.put("fullName", user.getFullName());
-        userInfo.put("phone", user.getPhone());
-        userInfo.put("address", user.getAddress());
-        userInfo.put("role", user.getRole().name());
-        userInfo.put("status", user.getStatus().name());
-        userInfo.put("registrationDate", user.getRegistrationDate());
-        userInfo.put("lastLogin", user.getLastLogin());
-        return userInfo;
+    public CompletableFuture<Map<String, Object>> changePasswordAsync(Long userId, String username, String oldPassword,
+                                                                      String newPassword, String clientAddress) {
+        long retryAfter = LoginThrottle.getRetryAfterSeconds(username, clientAddress);
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(
+                retryLater("Too many failed password attempts, please try again later", retryAfter));
+        }
+        
+        return onHashingPool(() -> changePassword(userId, oldPassword, newPassword, clientAddress));
     }
     
     /**
-     * Change password
+     * Change password, counting a wrong current password as a failed login
+     * @param clientAddress the client IP address, or null when unknown
      */
-    public Map<String, Object> changePassword(Long userId, String oldPassword, String newPassword) {
+    public Map<String, Object> changePassword(Long userId, String oldPassword, String newPassword,
+                                              String clientAddress) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -243,7 +322,8 @@ public class AuthService {
             User user = userOpt.get();
             
             // Verify old password
-            if (!PasswordUtil.verifyPassword(oldPassword, user.getPasswordHash())) {
+            if (!PasswordHasher.verify(oldPassword, user.getPasswordHash())) {
+                LoginThrottle.recordFailure(user.getUsername(), clientAddress);
                 response.put("success", false);
                 response.put("message", "Current password is incorrect");
                 return response;
@@ -257,12 +337,12 @@ public class AuthService {
             }
             
             // Update password
-            user.setPasswordHash(PasswordUtil.hashPassword(newPassword));
+            user.setPasswordHash(PasswordHasher.hash(newPassword));
             userDAO.update(user);
             
             response.put("success", true);
             response.put("message", "Password changed successfully");
-            
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error changing password: " + e.getMessage());
@@ -271,4 +351,3 @@ public class AuthService {
         return response;
     }
 }
-
@@ -0,0 +1,359 @@
+package com.library.service;
+
+import com.library.dao.AuthorDAO;
+import com.library.dao.BookDAO;
+import com.library.dao.CategoryDAO;
+import com.library.dto.BookImportRow;
+import com.library.entity.Author;
+import com.library.entity.Book;
+import com.library.entity.Category;
+import com.library.search.BookSearchIndex;
+import com.library.util.CsvReader;
+import com.library.util.GsonUtil;
+import com.library.util.JPAUtil;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Bulk import of books from a CSV or JSON Lines stream (POST /api/books/import).
+ * Rows are parsed one at a time and written in batches of db.import.batchSize, one transaction
+ * per batch: the batch's ISBNs are checked against the catalog with one query, categories and
+ * authors are resolved by name through maps loaded once (missing ones are created), and the
+ * books go out as batched inserts. Memory use grows with the number of distinct authors, not
+ * with the number of rows.
+ */
+public class BookImport {
+    
+    private static final int BATCH_SIZE = Math.max(1, JPAUtil.getIntConfig("db.import.batchSize", 500));
+    
+    /**
+     * Input formats
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+    
+    private final BookDAO bookDAO = new BookDAO();
+    private final AuthorDAO authorDAO = new AuthorDAO();
+    private final CategoryDAO categoryDAO = new CategoryDAO();
+    private final BookSearchIndex searchIndex = BookSearchIndex.getInstance();
+    
+    private final Format format;
+    private final BufferedReader lines;
+    private final CsvReader csv;
+    private final List<String> columns;
+    private long lineNumber;
+    
+    // Lower-cased name -> ID; filled when the import starts, extended as batches commit
+    private final Map<String, Long> authorIds = new HashMap<>();
+    private final Map<String, Long> categoryIds = new HashMap<>();
+    
+    private long rowsRead;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    private long authorsCreated;
+    private long categoriesCreated;
+    private long started;
+    
+    /**
+     * Open an import; for CSV the header record is read and checked here, so that a file
+     * that cannot be imported is rejected before any row is
+     * @throws IllegalArgumentException if the CSV header is missing, lacks the isbn or title
+     *         column, or names an unknown column
+     */
+    public BookImport(Reader reader, Format format) throws IOException {
+        this.format = format;
+        this.lines = new BufferedReader(reader);
+        if (format == Format.JSON_LINES) {
+            this.csv = null;
+            this.columns = null;
+            return;
+        }
+        
+        this.csv = new CsvReader(lines);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            throw new IllegalArgumentException("CSV header is missing");
+        }
+        this.columns = new ArrayList<>(header.size());
+        for (String name : header) {
+            // Drop a UTF-8 byte order mark in front of the first column name
+            String key = BookImportRow.columnKey(columns.isEmpty() ? name.replace("\uFEFF", "") : name);
+            if (key == null) {
+                throw new IllegalArgumentException("Unknown CSV column: " + name
+                    + " (expected " + String.join(", ", BookImportRow.COLUMNS) + ")");
+            }
+            columns.add(key);
+        }
+        if (!columns.contains("isbn") || !columns.contains("title")) {
+            throw new IllegalArgumentException("CSV header must include isbn and title");
+        }
+    }
+    
+    /**
+     * Import every row. Each rejected row is reported as an "error" event, each written batch
+     * as a "progress" event, and the end as a "done" event with the final counts.
+     * @return the "done" event
+     */
+    public Map<String, Object> run(Consumer<Map<String, Object>> events) throws IOException {
+        started = System.currentTimeMillis();
+        categoryDAO.findAll().forEach(category ->
+            categoryIds.putIfAbsent(nameKey(category.getCategoryName()), category.getCategoryId()));
+        authorDAO.forEachIdAndName(author -> authorIds.putIfAbsent(nameKey(author.getAuthorName()), author.getAuthorId()));
+        
+        List<ParsedRow> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            ParsedRow row;
+            while ((row = nextRow(events)) != null) {
+                batch.add(row);
+                if (batch.size() == BATCH_SIZE) {
+                    writeBatch(batch, events);
+                    batch.clear();
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // Unreadable rest of the input (an unclosed quote); rows read before it are still imported
+            failed++;
+            events.accept(error(csv.getRecordLineNumber(), null, e.getMessage()));
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, events);
+        }
+        
+        Map<String, Object> done = counts("done");
+        done.put("authorsCreated", authorsCreated);
+        done.put("categoriesCreated", categoriesCreated);
+        events.accept(done);
+        return done;
+    }
+    
+    /**
+     * Read and validate the next row, reporting rows that cannot be imported
+     * @return the next valid row, or null at the end of the input
+     */
+    private ParsedRow nextRow(Consumer<Map<String, Object>> events) throws IOException {
+        while (true) {
+            BookImportRow row;
+            if (format == Format.JSON_LINES) {
+                String line = lines.readLine();
+                if (line == null) {
+                    return null;
+                }
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                rowsRead++;
+                try {
+                    row = GsonUtil.getGson().fromJson(line, BookImportRow.class);
+                } catch (JsonParseException e) {
+                    failed++;
+                    events.accept(error(lineNumber, null, "Invalid JSON: " + e.getMessage()));
+                    continue;
+                }
+            } else {
+                List<String> fields = csv.readRecord();
+                if (fields == null) {
+                    return null;
+                }
+                lineNumber = csv.getRecordLineNumber();
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                rowsRead++;
+                if (fields.size() != columns.size()) {
+                    failed++;
+                    events.accept(error(lineNumber, null,
+                        "Expected " + columns.size() + " fields, found " + fields.size()));
+                    continue;
+                }
+                Map<String, String> byColumn = new HashMap<>();
+                for (int i = 0; i < fields.size(); i++) {
+                    byColumn.put(columns.get(i), fields.get(i));
+                }
+                try {
+                    row = BookImportRow.fromCsv(byColumn);
+                } catch (IllegalArgumentException e) {
+                    failed++;
+                    events.accept(error(lineNumber, byColumn.get("isbn"), e.getMessage()));
+                    continue;
+                }
+            }
+            
+            String problem = row == null ? "Empty row" : row.validate();
+            if (problem != null) {
+                failed++;
+                events.accept(error(lineNumber, row != null ? row.getIsbn() : null, problem));
+                continue;
+            }
+            return new ParsedRow(lineNumber, row);
+        }
+    }
+    
+    private void writeBatch(List<ParsedRow> batch, Consumer<Map<String, Object>> events) {
+        // Repeats within the batch; repeats of earlier batches are found in the database
+        Map<String, ParsedRow> byIsbn = new LinkedHashMap<>();
+        for (ParsedRow parsed : batch) {
+            if (byIsbn.putIfAbsent(parsed.row.getIsbn(), parsed) != null) {
+                duplicates++;
+                events.accept(error(parsed.line, parsed.row.getIsbn(), "Duplicate ISBN in import"));
+            }
+        }
+        
+        Map<String, Author> newAuthors = new HashMap<>();
+        Map<String, Category> newCategories = new HashMap<>();
+        List<Book> books = new ArrayList<>(byIsbn.size());
+        List<ParsedRow> skipped = new ArrayList<>();
+        try {
+            JPAUtil.runInTransaction(() -> {
+                Set<String> existing = bookDAO.findExistingIsbns(byIsbn.keySet());
+                
+                // Resolve names: known ones by ID, the others as new entities shared within the batch
+                Set<Long> knownAuthorIds = new HashSet<>();
+                for (ParsedRow parsed : byIsbn.values()) {
+                    if (existing.contains(parsed.row.getIsbn())) {
+                        continue;
+                    }
+                    String category = parsed.row.getCategory();
+                    if (category != null && !categoryIds.containsKey(nameKey(category))) {
+                        newCategories.computeIfAbsent(nameKey(category), k -> new Category(category, null));
+                    }
+                    for (String author : parsed.row.getAuthors()) {
+                        Long authorId = authorIds.get(nameKey(author));
+                        if (authorId != null) {
+                            knownAuthorIds.add(authorId);
+                        } else {
+                            newAuthors.computeIfAbsent(nameKey(author), k -> new Author(author));
+                        }
+                    }
+                }
+                categoryDAO.saveAll(newCategories.values());
+                authorDAO.saveAll(newAuthors.values());
+                Map<Long, Author> knownAuthors = new HashMap<>();
+                for (Author author : authorDAO.findByIds(knownAuthorIds)) {
+                    knownAuthors.put(author.getAuthorId(), author);
+                }
+                Map<Long, Category> knownCategories = new HashMap<>();
+                
+                for (ParsedRow parsed : byIsbn.values()) {
+                    if (existing.contains(parsed.row.getIsbn())) {
+                        skipped.add(parsed);
+                        continue;
+                    }
+                    Book book = toBook(parsed.row);
+                    String category = parsed.row.getCategory();
+                    if (category != null) {
+                        Long categoryId = categoryIds.get(nameKey(category));
+                        book.setCategory(categoryId != null
+                            ? knownCategories.computeIfAbsent(categoryId, id -> categoryDAO.findById(id).orElse(null))
+                            : newCategories.get(nameKey(category)));
+                    }
+                    for (String author : parsed.row.getAuthors()) {
+                        Long authorId = authorIds.get(nameKey(author));
+                        Author resolved = authorId != null ? knownAuthors.get(authorId) : newAuthors.get(nameKey(author));
+                        if (resolved != null && !book.getAuthors().contains(resolved)) {
+                            book.getAuthors().add(resolved);
+                        }
+                    }
+                    books.add(book);
+                }
+                bookDAO.saveAll(books);
+                if (!books.isEmpty()) {
+                    CatalogVersion.changed();
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            failed += byIsbn.size();
+            for (ParsedRow parsed : byIsbn.values()) {
+                events.accept(error(parsed.line, parsed.row.getIsbn(), "Batch not imported: " + e.getMessage()));
+            }
+            events.accept(counts("progress"));
+            return;
+        }
+        
+        for (Category category : newCategories.values()) {
+            categoryIds.put(nameKey(category.getCategoryName()), category.getCategoryId());
+        }
+        for (Author author : newAuthors.values()) {
+            authorIds.put(nameKey(author.getAuthorName()), author.getAuthorId());
+        }
+        categoriesCreated += newCategories.size();
+        authorsCreated += newAuthors.size();
+        for (Book book : books) {
+            searchIndex.index(book);
+        }
+        imported += books.size();
+        duplicates += skipped.size();
+        for (ParsedRow parsed : skipped) {
+            events.accept(error(parsed.line, parsed.row.getIsbn(), "ISBN already exists"));
+        }
+        events.accept(counts("progress"));
+    }
+    
+    private static Book toBook(BookImportRow row) {
+        Book book = new Book();
+        book.setIsbn(row.getIsbn());
+        book.setTitle(row.getTitle());
+        book.setSubtitle(row.getSubtitle());
+        book.setPublisher(row.getPublisher());
+        book.setEdition(row.getEdition());
+        book.setLanguage(row.getLanguage());
+        book.setDescription(row.getDescription());
+        book.setCoverImageUrl(row.getCoverImageUrl());
+        book.setPages(row.getPages());
+        if (row.getTotalCopies() != null) {
+            book.setTotalCopies(row.getTotalCopies());
+            book.setAvailableCopies(row.getTotalCopies());
+        }
+        return book;
+    }
+    
+    private Map<String, Object> counts(String event) {
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("event", event);
+        counts.put("rowsRead", rowsRead);
+        counts.put("imported", imported);
+        counts.put("duplicates", duplicates);
+        counts.put("failed", failed);
+        counts.put("elapsedMs", System.currentTimeMillis() - started);
+        return counts;
+    }
+    
+    private static Map<String, Object> error(long line, String isbn, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("event", "error");
+        error.put("line", line);
+        error.put("isbn", isbn);
+        error.put("message", message);
+        return error;
+    }
+    
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class ParsedRow {
+        private final long line;
+        private final BookImportRow row;
+        
+        ParsedRow(long line, BookImportRow row) {
+            this.line = line;
+            this.row = row;
+        }
+    }
+}
@@ -3,11 +3,18 @@ package com.library.service;
 import com.library.dao.BookDAO;
 import com.library.dao.CategoryDAO;
 import com.library.dao.AuthorDAO;
+import com.library.dto.BookDTO;
+import com.library.dto.BookRequest;
 import com.library.entity.Book;
 import com.library.entity.Category;
 import com.library.entity.Author;
+import com.library.search.BookSearchIndex;
+import com.library.util.PageCursor;
+import org.hibernate.Hibernate;
 
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -15,65 +22,99 @@ import java.util.stream.Collectors;
  */
 public class BookService {
     
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final int MAX_SUGGESTIONS = 10;
+    
     private final BookDAO bookDAO;
     private final CategoryDAO categoryDAO;
     private final AuthorDAO authorDAO;
+    private final BookSearchIndex searchIndex;
     
     public BookService() {
         this.bookDAO = new BookDAO();
         this.categoryDAO = new CategoryDAO();
         this.authorDAO = new AuthorDAO();
+        this.searchIndex = BookSearchIndex.getInstance();
     }
     
     /**
-     * Get all books
+     * Pass every book to an action, one at a time, without loading the catalog into memory
      */
-    public List<Map<String, Object>> getAllBooks() {
-        List<Book> books = bookDAO.findAll();
-        return books.stream().map(this::getBookInfo).collect(Collectors.toList());
+    public void forEachBook(Consumer<BookDTO> action) {
+        bookDAO.forEachDTO(action);
+    }
+    
+    /**
+     * Get one page of books in ID order
+     * @param after cursor returned with the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Map<String, Object> getBooksPage(String after, int limit) {
+        Long afterId = after != null ? PageCursor.decodeId(after) : null;
+        List<BookDTO> books = bookDAO.findDTOPageAfter(afterId, limit + 1);
+        return PageCursor.toPage(books, limit, book -> PageCursor.encode(book.getBookId()), Function.identity());
     }
     
     /**
      * Get book by ID
      */
-    public Optional<Map<String, Object>> getBookById(Long bookId) {
-        Optional<Book> bookOpt = bookDAO.findById(bookId);
-        return bookOpt.map(this::getBookInfo);
+    public Optional<BookDTO> getBookById(Long bookId) {
+        return bookDAO.findDTOsByIds(List.of(bookId)).stream().findFirst();
     }
     
     /**
      * Get available books
      */
-    public List<Map<String, Object>> getAvailableBooks() {
-        List<Book> books = bookDAO.findAvailableBooks();
-        return books.stream().map(this::getBookInfo).collect(Collectors.toList());
+    public List<BookDTO> getAvailableBooks() {
+        return bookDAO.findAvailableDTOs();
     }
     
     /**
-     * Search books
+     * Search books, ranked by relevance. Served from the in-memory index once it is built,
+     * and from the database until then.
      */
-    public List<Map<String, Object>> searchBooks(String searchTerm) {
-        List<Book> books = bookDAO.searchBooks(searchTerm);
-        return books.stream().map(this::getBookInfo).collect(Collectors.toList());
+    public List<BookDTO> searchBooks(String searchTerm) {
+        if (searchIndex.isReady()) {
+            return bookDAO.findDTOsByIds(searchIndex.search(searchTerm, MAX_SEARCH_RESULTS));
+        }
+        searchIndex.buildAsync();
+        return bookDAO.searchBooksWithDetails(searchTerm).stream().map(BookDTO::from).collect(Collectors.toList());
+    }
+    
+    /**
+     * Get autocomplete suggestions for a partially typed title, author name or ISBN.
+     * Returns nothing until the search index has been built.
+     */
+    public List<Map<String, Object>> suggest(String prefix, int limit) {
+        if (!searchIndex.isReady()) {
+            searchIndex.buildAsync();
+            return new ArrayList<>();
+        }
+        return searchIndex.suggest(prefix, Math.min(Math.max(limit, 1), MAX_SUGGESTIONS)).stream().map(suggestion -> {
+            Map<String, Object> info = new HashMap<>();
+            info.put("text", suggestion.getText());
+            info.put("type", suggestion.getType());
+            info.put("author".equals(suggestion.getType()) ? "authorId" : "bookId", suggestion.getId());
+            return info;
+        }).collect(Collectors.toList());
     }
     
     /**
      * Get books by category
      */
-    public List<Map<String, Object>> getBooksByCategory(Long categoryId) {
-        List<Book> books = bookDAO.findByCategory(categoryId);
-        return books.stream().map(this::getBookInfo).collect(Collectors.toList());
+    public List<BookDTO> getBooksByCategory(Long categoryId) {
+        return bookDAO.findDTOsByCategory(categoryId);
     }
     
     /**
      * Create book
      */
-    public Map<String, Object> createBook(Map<String, Object> bookData) {
+    public Map<String, Object> createBook(BookRequest bookData) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            String isbn = (String) bookData.get("isbn");
-            String title = (String) bookData.get("title");
+            String isbn = bookData.getIsbn();
+            String title = bookData.getTitle();
             
             // Validate required fields
             if (isbn == null || title == null) {
@@ -93,46 +134,42 @@ public class BookService {
             Book book = new Book();
             book.setIsbn(isbn);
             book.setTitle(title);
-            book.setSubtitle((String) bookData.get("subtitle"));
-            book.setPublisher((String) bookData.get("publisher"));
-            book.setEdition((String) bookData.get("edition"));
-            book.setLanguage((String) bookData.get("language"));
-            book.setDescription((String) bookData.get("description"));
-            book.setCoverImageUrl((String) bookData.get("coverImageUrl"));
+            book.setSubtitle(bookData.getSubtitle());
+            book.setPublisher(bookData.getPublisher());
+            book.setEdition(bookData.getEdition());
+            book.setLanguage(bookData.getLanguage());
+            book.setDescription(bookData.getDescription());
+            book.setCoverImageUrl(bookData.getCoverImageUrl());
+            book.setPages(bookData.getPages());
             
-            if (bookData.containsKey("pages")) {
-                book.setPages(((Number) bookData.get("pages")).intValue());
-            }
-            if (bookData.containsKey("totalCopies")) {
-                int copies = ((Number) bookData.get("totalCopies")).intValue();
-                book.setTotalCopies(copies);
-                book.setAvailableCopies(copies);
+            if (bookData.getTotalCopies() != null) {
+                book.setTotalCopies(bookData.getTotalCopies());
+                book.setAvailableCopies(bookData.getTotalCopies());
             }
             
             // Set category
-            if (bookData.containsKey("categoryId")) {
-                Long categoryId = ((Number) bookData.get("categoryId")).longValue();
-                Optional<Category> categoryOpt = categoryDAO.findById(categoryId);
+            if (bookData.getCategoryId() != null) {
+                Optional<Category> categoryOpt = categoryDAO.findById(bookData.getCategoryId());
                 categoryOpt.ifPresent(book::setCategory);
             }
             
             Book savedBook = bookDAO.save(book);
             
             // Add authors
-            if (bookData.containsKey("authorIds")) {
-                @SuppressWarnings("unchecked")
-                List<Number> authorIds = (List<Number>) bookData.get("authorIds");
-                for (Number authorId : authorIds) {
-                    Optional<Author> authorOpt = authorDAO.findById(authorId.longValue());
+            if (bookData.getAuthorIds() != null) {
+                for (Long authorId : bookData.getAuthorIds()) {
+                    Optional<Author> authorOpt = authorDAO.findById(authorId);
                     authorOpt.ifPresent(savedBook::addAuthor);
                 }
                 bookDAO.update(savedBook);
             }
+            searchIndex.index(savedBook);
+            CatalogVersion.changed();
             
             response.put("success", true);
             response.put("message", "Book created successfully");
-            response.put("book", getBookInfo(savedBook));
-            
+            response.put("book", BookDTO.from(savedBook));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error creating book: " + e.getMessage());
@@ -142,52 +179,56 @@ public class BookService {
     }
     
     /**
-     * Update book
+     * Update book. Changes are applied to the latest row version and retried
+     * if a concurrent update (e.g. a checkout) bumps the version first. The update
+     * commits in its own transaction, independent of the request's.
      */
-    public Map<String, Object> updateBook(Long bookId, Map<String, Object> bookData) {
+    public Map<String, Object> updateBook(Long bookId, BookRequest bookData) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<Book> bookOpt = bookDAO.findById(bookId);
+            Optional<Book> bookOpt = bookDAO.updateWithRetry(bookId, (em, book) -> {
+                // Update fields
+                if (bookData.getTitle() != null) {
+                    book.setTitle(bookData.getTitle());
+                }
+                if (bookData.getSubtitle() != null) {
+                    book.setSubtitle(bookData.getSubtitle());
+                }
+                if (bookData.getPublisher() != null) {
+                    book.setPublisher(bookData.getPublisher());
+                }
+                if (bookData.getDescription() != null) {
+                    book.setDescription(bookData.getDescription());
+                }
+                if (bookData.getTotalCopies() != null) {
+                    book.setTotalCopies(bookData.getTotalCopies());
+                }
+                if (bookData.getAvailableCopies() != null) {
+                    book.setAvailableCopies(bookData.getAvailableCopies());
+                }
+                if (bookData.getCategoryId() != null) {
+                    Category category = em.find(Category.class, bookData.getCategoryId());
+                    if (category != null) {
+                        book.setCategory(category);
+                    }
+                }
+                // Load the cached authors collection while attached; the index and response read it afterwards
+                Hibernate.initialize(book.getAuthors());
+            });
+            
             if (bookOpt.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Book not found");
                 return response;
             }
-            
-            Book book = bookOpt.get();
-            
-            // Update fields
-            if (bookData.containsKey("title")) {
-                book.setTitle((String) bookData.get("title"));
-            }
-            if (bookData.containsKey("subtitle")) {
-                book.setSubtitle((String) bookData.get("subtitle"));
-            }
-            if (bookData.containsKey("publisher")) {
-                book.setPublisher((String) bookData.get("publisher"));
-            }
-            if (bookData.containsKey("description")) {
-                book.setDescription((String) bookData.get("description"));
-            }
-            if (bookData.containsKey("totalCopies")) {
-                book.setTotalCopies(((Number) bookData.get("totalCopies")).intValue());
-            }
-            if (bookData.containsKey("availableCopies")) {
-                book.setAvailableCopies(((Number) bookData.get("availableCopies")).intValue());
-            }
-            if (bookData.containsKey("categoryId")) {
-                Long categoryId = ((Number) bookData.get("categoryId")).longValue();
-                Optional<Category> categoryOpt = categoryDAO.findById(categoryId);
-                categoryOpt.ifPresent(book::setCategory);
-            }
-            
-            Book updatedBook = bookDAO.update(book);
+            searchIndex.index(bookOpt.get());
+            CatalogVersion.changed();
             
             response.put("success", true);
             response.put("message", "Book updated successfully");
-            response.put("book", getBookInfo(updatedBook));
-            
+            response.put("book", BookDTO.from(bookOpt.get()));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error updating book: " + e.getMessage());
@@ -211,10 +252,14 @@ public class BookService {
             }
             
             bookDAO.delete(bookId);
+            searchIndex.remove(bookId);
+            CatalogVersion.changed();
+            // Borrowing records and fines go with the book
+            LibraryStatistics.invalidate();
             
             response.put("success", true);
             response.put("message", "Book deleted successfully");
-            
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error deleting book: " + e.getMessage());
@@ -222,43 +267,4 @@ public class BookService {
         
         return response;
     }
-    
-    /**
-     * Get book information map
-     */
-    private Map<String, Object> getBookInfo(Book book) {
-        Map<String, Object> bookInfo = new HashMap<>();
-        bookInfo.put("bookId", book.getBookId());
-        bookInfo.put("isbn", book.getIsbn());
-        bookInfo.put("title", book.getTitle());
-        bookInfo.put("subtitle", book.getSubtitle());
-        bookInfo.put("publisher", book.getPublisher());
-        bookInfo.put("publicationDate", book.getPublicationDate());
-        bookInfo.put("edition", book.getEdition());
-        bookInfo.put("language", book.getLanguage());
-        bookInfo.put("pages", book.getPages());
-        bookInfo.put("description", book.getDescription());
-        bookInfo.put("coverImageUrl", book.getCoverImageUrl());
-        bookInfo.put("totalCopies", book.getTotalCopies());
-        bookInfo.put("availableCopies", book.getAvailableCopies());
-        bookInfo.put("status", book.getStatus().name());
-        
-        if (book.getCategory() != null) {
-            Map<String, Object> categoryInfo = new HashMap<>();
-            categoryInfo.put("categoryId", book.getCategory().getCategoryId());
-            categoryInfo.put("categoryName", book.getCategory().getCategoryName());
-            bookInfo.put("category", categoryInfo);
-        }
-        
-        List<Map<String, Object>> authors = book.getAuthors().stream().map(author -> {
-            Map<String, Object> authorInfo = new HashMap<>();
-            authorInfo.put("authorId", author.getAuthorId());
-            authorInfo.put("authorName", author.getAuthorName());
-            return authorInfo;
-        }).collect(Collectors.toList());
-        bookInfo.put("authors", authors);
-        
-        return bookInfo;
-    }
 }
-
@@ -2,15 +2,20 @@ package com.library.service;
 
 import com.library.dao.BorrowingRecordDAO;
 import com.library.dao.BookDAO;
+import com.library.dao.FineDAO;
 import com.library.dao.UserDAO;
+import com.library.dto.BorrowingRecordDTO;
 import com.library.entity.BorrowingRecord;
 import com.library.entity.Book;
 import com.library.entity.User;
+import com.library.util.JPAUtil;
+import com.library.util.PageCursor;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Service class for borrowing operations
@@ -20,6 +25,7 @@ public class BorrowingService {
     private final BorrowingRecordDAO borrowingRecordDAO;
     private final BookDAO bookDAO;
     private final UserDAO userDAO;
+    private final FineDAO fineDAO;
     private static final int DEFAULT_BORROW_DAYS = 14;
     private static final BigDecimal FINE_PER_DAY = new BigDecimal("1.00");
     
@@ -27,212 +33,241 @@ public class BorrowingService {
         this.borrowingRecordDAO = new BorrowingRecordDAO();
         this.bookDAO = new BookDAO();
         this.userDAO = new UserDAO();
+        this.fineDAO = new FineDAO();
     }
     
     /**
-     * Borrow a book
+     * Fine owed for a record overdue by the given number of whole days, or null if none
+     */
+    static FineDAO.Charge overdueCharge(Long recordId, Long userId, long daysOverdue) {
+        if (daysOverdue <= 0) {
+            return null;
+        }
+        return new FineDAO.Charge(recordId, userId, FINE_PER_DAY.multiply(BigDecimal.valueOf(daysOverdue)),
+            "Overdue by " + daysOverdue + " days");
+    }
+    
+    /**
+     * Borrow a book. Validation, the copy count decrement and the new record
+     * form a single transaction; the decrement is a conditional update so
+     * concurrent checkouts of the last copy cannot both succeed.
      */
     public Map<String, Object> borrowBook(Long userId, Long bookId, Long issuedById, int days) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            // Validate user
-            Optional<User> userOpt = userDAO.findById(userId);
-            if (userOpt.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "User not found");
-                return response;
-            }
-            
-            // Validate book
-            Optional<Book> bookOpt = bookDAO.findById(bookId);
-            if (bookOpt.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "Book not found");
-                return response;
-            }
-            
-            Book book = bookOpt.get();
-            User user = userOpt.get();
-            
-            // Check if book is available
-            if (!book.isAvailable()) {
-                response.put("success", false);
-                response.put("message", "Book is not available for borrowing");
-                return response;
-            }
-            
-            // Check user's active borrowings
-            long activeBorrowings = borrowingRecordDAO.countActiveBorrowingsByUser(userId);
-            if (activeBorrowings >= 5) {
-                response.put("success", false);
-                response.put("message", "Maximum borrowing limit (5 books) reached");
-                return response;
-            }
-            
-            // Create borrowing record
-            LocalDateTime dueDate = LocalDateTime.now().plusDays(days > 0 ? days : DEFAULT_BORROW_DAYS);
-            BorrowingRecord record = new BorrowingRecord(user, book, dueDate);
-            
-            if (issuedById != null) {
-                Optional<User> issuedByOpt = userDAO.findById(issuedById);
-                issuedByOpt.ifPresent(record::setIssuedBy);
-            }
-            
-            BorrowingRecord savedRecord = borrowingRecordDAO.save(record);
-            
-            // Update book availability
-            book.setAvailableCopies(book.getAvailableCopies() - 1);
-            bookDAO.update(book);
-            
-            response.put("success", true);
-            response.put("message", "Book borrowed successfully");
-            response.put("record", getBorrowingRecordInfo(savedRecord));
-            
+            return JPAUtil.runInTransaction(() -> doBorrowBook(userId, bookId, issuedById, days));
         } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
             response.put("success", false);
             response.put("message", "Error borrowing book: " + e.getMessage());
+            return response;
         }
+    }
+    
+    private Map<String, Object> doBorrowBook(Long userId, Long bookId, Long issuedById, int days) {
+        Map<String, Object> response = new HashMap<>();
         
+        // Validate user
+        Optional<User> userOpt = userDAO.findById(userId);
+        if (userOpt.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "User not found");
+            return response;
+        }
+        
+        // Validate book
+        Optional<Book> bookOpt = bookDAO.findById(bookId);
+        if (bookOpt.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Book not found");
+            return response;
+        }
+        
+        Book book = bookOpt.get();
+        User user = userOpt.get();
+        
+        // Check if book is available
+        if (!book.isAvailable()) {
+            response.put("success", false);
+            response.put("message", "Book is not available for borrowing");
+            return response;
+        }
+        
+        // Check user's active borrowings
+        long activeBorrowings = borrowingRecordDAO.countActiveBorrowingsByUser(userId);
+        if (activeBorrowings >= 5) {
+            response.put("success", false);
+            response.put("message", "Maximum borrowing limit (5 books) reached");
+            return response;
+        }
+        
+        // Take a copy; fails if another checkout got the last one first
+        if (!bookDAO.decrementAvailableCopies(bookId)) {
+            response.put("success", false);
+            response.put("message", "Book is not available for borrowing");
+            return response;
+        }
+        CatalogVersion.changed();
+        
+        // Create borrowing record
+        LocalDateTime dueDate = LocalDateTime.now().plusDays(days > 0 ? days : DEFAULT_BORROW_DAYS);
+        BorrowingRecord record = new BorrowingRecord(user, book, dueDate);
+        
+        if (issuedById != null) {
+            Optional<User> issuedByOpt = userDAO.findById(issuedById);
+            issuedByOpt.ifPresent(record::setIssuedBy);
+        }
+        
+        BorrowingRecord savedRecord = borrowingRecordDAO.save(record);
+        LibraryStatistics.borrowed();
+        
+        response.put("success", true);
+        response.put("message", "Book borrowed successfully");
+        response.put("record", BorrowingRecordDTO.from(savedRecord));
         return response;
     }
     
     /**
-     * Return a book
+     * Return a book. Closing the record and restoring the copy count happen in one
+     * transaction, and the record is only closed if it is still open, so a book
+     * cannot be returned twice.
      */
     public Map<String, Object> returnBook(Long recordId, Long returnedToId) {
-        Map<String, Object> response = new HashMap<>();
-        
         try {
-            Optional<BorrowingRecord> recordOpt = borrowingRecordDAO.findById(recordId);
-            if (recordOpt.isEmpty()) {
-                response.put("success", false);
-                response.put("message", "Borrowing record not found");
-                return response;
-            }
-            
-            BorrowingRecord record = recordOpt.get();
-            
-            // Check if already returned
-            if (record.getStatus() == BorrowingRecord.BorrowStatus.RETURNED) {
-                response.put("success", false);
-                response.put("message", "Book already returned");
-                return response;
-            }
-            
-            // Calculate fine if overdue
-            BigDecimal fine = BigDecimal.ZERO;
-            if (record.isOverdue()) {
-                long daysOverdue = record.getDaysOverdue();
-                fine = FINE_PER_DAY.multiply(BigDecimal.valueOf(daysOverdue));
-                record.setFineAmount(fine);
-            }
-            
-            // Update record
-            record.setReturnDate(LocalDateTime.now());
-            record.setStatus(BorrowingRecord.BorrowStatus.RETURNED);
-            
-            if (returnedToId != null) {
-                Optional<User> returnedToOpt = userDAO.findById(returnedToId);
-                returnedToOpt.ifPresent(record::setReturnedTo);
-            }
-            
-            BorrowingRecord updatedRecord = borrowingRecordDAO.update(record);
-            
-            // Update book availability
-            Book book = record.getBook();
-            book.setAvailableCopies(book.getAvailableCopies() + 1);
-            bookDAO.update(book);
-            
-            response.put("success", true);
-            response.put("message", "Book returned successfully");
-            response.put("record", getBorrowingRecordInfo(updatedRecord));
-            response.put("fine", fine);
-            
+            return JPAUtil.runInTransaction(() -> doReturnBook(recordId, returnedToId));
         } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
             response.put("success", false);
             response.put("message", "Error returning book: " + e.getMessage());
+            return response;
+        }
+    }
+    
+    private Map<String, Object> doReturnBook(Long recordId, Long returnedToId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        Optional<BorrowingRecord> recordOpt = borrowingRecordDAO.findById(recordId);
+        if (recordOpt.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Borrowing record not found");
+            return response;
         }
         
+        BorrowingRecord record = recordOpt.get();
+        
+        // Check if already returned
+        if (record.getStatus() == BorrowingRecord.BorrowStatus.RETURNED) {
+            response.put("success", false);
+            response.put("message", "Book already returned");
+            return response;
+        }
+        
+        // Calculate fine if overdue
+        FineDAO.Charge charge = overdueCharge(recordId, record.getUser().getUserId(), record.getDaysOverdue());
+        BigDecimal fine = charge != null ? charge.getAmount() : BigDecimal.ZERO;
+        
+        User returnedTo = null;
+        if (returnedToId != null) {
+            returnedTo = userDAO.findById(returnedToId).orElse(null);
+        }
+        
+        // Close the record; fails if a concurrent return got there first
+        if (!borrowingRecordDAO.markReturned(recordId, LocalDateTime.now(), fine, returnedTo)) {
+            response.put("success", false);
+            response.put("message", "Book already returned");
+            return response;
+        }
+        LibraryStatistics.returned(record.getStatus());
+        
+        // Settle the fine at its final amount (OverdueJob accrues it while the book is out)
+        if (charge != null) {
+            LibraryStatistics.finesUpserted(fineDAO.upsertFines(List.of(charge)));
+        }
+        
+        // Update book availability
+        bookDAO.incrementAvailableCopies(record.getBook().getBookId());
+        CatalogVersion.changed();
+        
+        BorrowingRecord updatedRecord = borrowingRecordDAO.refresh(record);
+        
+        response.put("success", true);
+        response.put("message", "Book returned successfully");
+        response.put("record", BorrowingRecordDTO.from(updatedRecord));
+        response.put("fine", fine);
         return response;
     }
     
     /**
      * Get user's borrowing history
      */
-    public List<Map<String, Object>> getUserBorrowingHistory(Long userId) {
-        List<BorrowingRecord> records = borrowingRecordDAO.findByUser(userId);
-        return records.stream().map(this::getBorrowingRecordInfo).collect(Collectors.toList());
+    public List<BorrowingRecordDTO> getUserBorrowingHistory(Long userId) {
+        return borrowingRecordDAO.findDTOsByUser(userId);
     }
     
     /**
      * Get user's active borrowings
      */
-    public List<Map<String, Object>> getUserActiveBorrowings(Long userId) {
-        List<BorrowingRecord> records = borrowingRecordDAO.findActiveBorrowingsByUser(userId);
-        return records.stream().map(this::getBorrowingRecordInfo).collect(Collectors.toList());
+    public List<BorrowingRecordDTO> getUserActiveBorrowings(Long userId) {
+        return borrowingRecordDAO.findActiveDTOsByUser(userId);
     }
     
     /**
      * Get overdue borrowings
      */
-    public List<Map<String, Object>> getOverdueBorrowings() {
-        List<BorrowingRecord> records = borrowingRecordDAO.findOverdueBorrowings();
-        return records.stream().map(this::getBorrowingRecordInfo).collect(Collectors.toList());
+    public List<BorrowingRecordDTO> getOverdueBorrowings() {
+        return borrowingRecordDAO.findOverdueDTOs();
+    }
+    
+    /**
+     * Pass every borrowing record to an action, one at a time
+     */
+    public void forEachBorrowing(Consumer<BorrowingRecordDTO> action) {
+        borrowingRecordDAO.forEachDTO(action);
     }
     
     /**
-     * Get all borrowing records
+     * Get one page of borrowing records, newest first
+     * @param after cursor returned with the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is invalid
      */
-    public List<Map<String, Object>> getAllBorrowings() {
-        List<BorrowingRecord> records = borrowingRecordDAO.findAll();
-        return records.stream().map(this::getBorrowingRecordInfo).collect(Collectors.toList());
+    public Map<String, Object> getBorrowingsPage(String after, int limit) {
+        LocalDateTime beforeDate = null;
+        Long beforeId = null;
+        if (after != null) {
+            String[] key = PageCursor.decode(after, 2);
+            try {
+                beforeDate = LocalDateTime.parse(key[0]);
+                beforeId = Long.parseLong(key[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor", e);
+            }
+        }
+        List<BorrowingRecordDTO> records = borrowingRecordDAO.findDTOPageBefore(beforeDate, beforeId, limit + 1);
+        return PageCursor.toPage(records, limit,
+            record -> PageCursor.encode(record.getBorrowDate(), record.getRecordId()),
+            Function.identity());
     }
     
     /**
      * Get all active borrowings
      */
-    public List<Map<String, Object>> getActiveBorrowings() {
-        List<BorrowingRecord> borrowed = borrowingRecordDAO.findByStatus(BorrowingRecord.BorrowStatus.BORROWED);
-        List<BorrowingRecord> overdue = borrowingRecordDAO.findByStatus(BorrowingRecord.BorrowStatus.OVERDUE);
-        
-        List<BorrowingRecord> allActive = new ArrayList<>();
-        allActive.addAll(borrowed);
-        allActive.addAll(overdue);
-        
-        return allActive.stream().map(this::getBorrowingRecordInfo).collect(Collectors.toList());
+    public List<BorrowingRecordDTO> getActiveBorrowings() {
+        List<BorrowingRecordDTO> allActive = new ArrayList<>(
+            borrowingRecordDAO.findDTOsByStatus(BorrowingRecord.BorrowStatus.BORROWED));
+        allActive.addAll(borrowingRecordDAO.findDTOsByStatus(BorrowingRecord.BorrowStatus.OVERDUE));
+        return allActive;
     }
     
     /**
-     * Get borrowing record information map
+     * Get borrowing record counts per status
      */
-    private Map<String, Object> getBorrowingRecordInfo(BorrowingRecord record) {
-        Map<String, Object> info = new HashMap<>();
-        info.put("recordId", record.getRecordId());
-        info.put("borrowDate", record.getBorrowDate());
-        info.put("dueDate", record.getDueDate());
-        info.put("returnDate", record.getReturnDate());
-        info.put("status", record.getStatus().name());
-        info.put("fineAmount", record.getFineAmount());
-        info.put("notes", record.getNotes());
-        info.put("isOverdue", record.isOverdue());
-        info.put("daysOverdue", record.getDaysOverdue());
-        
-        // User info
-        Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", record.getUser().getUserId());
-        userInfo.put("username", record.getUser().getUsername());
-        userInfo.put("fullName", record.getUser().getFullName());
-        info.put("user", userInfo);
-        
-        // Book info
-        Map<String, Object> bookInfo = new HashMap<>();
-        bookInfo.put("bookId", record.getBook().getBookId());
-        bookInfo.put("title", record.getBook().getTitle());
-        bookInfo.put("isbn", record.getBook().getIsbn());
-        info.put("book", bookInfo);
-        
-        return info;
+    public Map<String, Object> getBorrowingStatistics() {
+        return LibraryStatistics.getBorrowingStatistics();
+    }
+    
+    /**
+     * Get fine counts and amounts per status
+     */
+    public Map<String, Object> getFineStatistics() {
+        return LibraryStatistics.getFineStatistics();
     }
 }
-
@@ -0,0 +1,71 @@
+package com.library.service;
+
+import com.library.util.JPAUtil;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Catalog-wide change counter behind the ETag and Last-Modified headers of the book endpoints.
+ * Every committed change to a book or its available copies advances it, so conditional requests
+ * are answered without touching the database. The counter lives in memory and starts from a
+ * new epoch on each start, so tags from a previous run never match.
+ */
+public final class CatalogVersion {
+    
+    private static final String EPOCH = Long.toString(System.currentTimeMillis(), 36);
+    private static final AtomicReference<Snapshot> current = new AtomicReference<>(new Snapshot(0, Instant.now()));
+    
+    private CatalogVersion() {
+    }
+    
+    /**
+     * Get the current version. Read it before querying, so a change that lands during the
+     * query makes the response's tag stale rather than the cached body.
+     */
+    public static Snapshot current() {
+        return current.get();
+    }
+    
+    /**
+     * Record a catalog change; takes effect when the current unit of work commits
+     */
+    public static void changed() {
+        JPAUtil.afterCommit(CatalogVersion::advance);
+    }
+    
+    private static void advance() {
+        current.updateAndGet(s -> new Snapshot(s.counter + 1, Instant.now()));
+    }
+    
+    /**
+     * An immutable catalog version: strong entity tag and modification time
+     */
+    public static final class Snapshot {
+        private final long counter;
+        private final String tag;
+        private final Date lastModified;
+        
+        private Snapshot(long counter, Instant changedAt) {
+            this.counter = counter;
+            this.tag = EPOCH + "-" + counter;
+            // HTTP dates have one-second resolution
+            this.lastModified = Date.from(changedAt.truncatedTo(ChronoUnit.SECONDS));
+        }
+        
+        public String getTag() {
+            return tag;
+        }
+        
+        /**
+         * Get the modification time, or null while the current second is the one it changed in.
+         * HTTP dates have one-second resolution, so another change later in that second would
+         * get the same date, and a client that saw it would be told the copy it has is current.
+         */
+        public Date getLastModified() {
+            return System.currentTimeMillis() >= lastModified.getTime() + 1000 ? lastModified : null;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.library.service;
+
+import com.library.dao.BookDAO;
+import com.library.dao.BorrowingRecordDAO;
+import com.library.dao.FineDAO;
+import com.library.dto.AuthorDTO;
+import com.library.dto.BookDTO;
+import com.library.dto.BookImportRow;
+import com.library.dto.BorrowingRecordDTO;
+import com.library.dto.FineDTO;
+import com.library.util.CsvWriter;
+import com.library.util.GsonUtil;
+import com.library.util.JPAUtil;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Export of a whole table as CSV or JSON Lines (GET /api/export/{dataset}). Rows are read through
+ * the DAOs' streaming sources and written as they arrive, so memory use does not depend on the
+ * table size. Each export holds a database connection until it ends; at most
+ * db.export.maxConcurrent run at once, leaving the rest of the pool to normal requests.
+ * Book CSV uses the import columns, so an export can be imported into another catalog.
+ */
+public class DataExport {
+    
+    // Same text as the JSON API's timestamps
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private static final Semaphore permits = new Semaphore(Math.max(1, JPAUtil.getIntConfig("db.export.maxConcurrent", 2)));
+    // How long an export whose slot was taken after open waits for another one
+    private static final long SLOT_WAIT_SECONDS = 30;
+    
+    /**
+     * Output formats
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+    
+    private static final Map<String, Dataset<?>> DATASETS = Map.of(
+        "books", new Dataset<>(BookDTO.class, BookImportRow.COLUMNS, new BookDAO()::forEachDTO, DataExport::bookRow),
+        "borrowings", new Dataset<>(BorrowingRecordDTO.class,
+            List.of("recordId", "userId", "username", "bookId", "isbn", "title", "borrowDate", "dueDate",
+                "returnDate", "status", "fineAmount", "notes"),
+            new BorrowingRecordDAO()::forEachDTO, DataExport::borrowingRow),
+        "fines", new Dataset<>(FineDTO.class,
+            List.of("fineId", "recordId", "userId", "username", "fineAmount", "fineReason", "fineDate",
+                "paymentDate", "status", "paymentMethod"),
+            new FineDAO()::forEachDTO, DataExport::fineRow)
+    );
+    
+    private final Dataset<?> dataset;
+    private final Format format;
+    
+    private DataExport(Dataset<?> dataset, Format format) {
+        this.dataset = dataset;
+        this.format = format;
+    }
+    
+    /**
+     * Prepare an export of a dataset. No slot is reserved yet: a response body may never be
+     * written (HEAD requests, failed commits), so writeTo takes the slot for as long as it runs.
+     * @return the export, or null when db.export.maxConcurrent exports are already running
+     * @throws IllegalArgumentException if the dataset is not books, borrowings or fines
+     */
+    public static DataExport open(String name, Format format) {
+        Dataset<?> dataset = DATASETS.get(name);
+        if (dataset == null) {
+            throw new IllegalArgumentException("Unknown export: " + name + " (expected books, borrowings or fines)");
+        }
+        return permits.availablePermits() > 0 ? new DataExport(dataset, format) : null;
+    }
+    
+    /**
+     * Take an export slot, write every row, then release the slot. If other exports took the
+     * free slots since open, this waits up to SLOT_WAIT_SECONDS for one.
+     * @throws IOException if no slot frees up in time, or writing fails
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        try {
+            if (!permits.tryAcquire(SLOT_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IOException("Too many exports in progress");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an export slot");
+        }
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            try {
+                dataset.write(writer, format);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            writer.flush();
+        } finally {
+            permits.release();
+        }
+    }
+    
+    private static List<Object> bookRow(BookDTO book) {
+        String authors = book.getAuthors().stream().map(AuthorDTO::getAuthorName).collect(Collectors.joining(";"));
+        return Arrays.asList(book.getIsbn(), book.getTitle(), book.getSubtitle(), authors, book.getCategoryName(),
+            book.getPublisher(), book.getEdition(), book.getLanguage(), book.getPages(), book.getTotalCopies(),
+            book.getDescription(), book.getCoverImageUrl());
+    }
+    
+    private static List<Object> borrowingRow(BorrowingRecordDTO record) {
+        return Arrays.asList(record.getRecordId(), record.getUserId(), record.getUsername(), record.getBookId(),
+            record.getBookIsbn(), record.getBookTitle(), text(record.getBorrowDate()), text(record.getDueDate()),
+            text(record.getReturnDate()), record.getStatus(), record.getFineAmount(), record.getNotes());
+    }
+    
+    private static List<Object> fineRow(FineDTO fine) {
+        return Arrays.asList(fine.getFineId(), fine.getRecordId(), fine.getUserId(), fine.getUsername(),
+            fine.getFineAmount(), fine.getFineReason(), text(fine.getFineDate()), text(fine.getPaymentDate()),
+            fine.getStatus(), fine.getPaymentMethod());
+    }
+    
+    private static String text(LocalDateTime value) {
+        return value != null ? DATE_TIME_FORMATTER.format(value) : null;
+    }
+    
+    /**
+     * A streaming row source with its CSV columns
+     */
+    private static final class Dataset<T> {
+        private final Class<T> type;
+        private final List<String> columns;
+        private final Consumer<Consumer<T>> source;
+        private final Function<T, List<Object>> row;
+        
+        Dataset(Class<T> type, List<String> columns, Consumer<Consumer<T>> source, Function<T, List<Object>> row) {
+            this.type = type;
+            this.columns = columns;
+            this.source = source;
+            this.row = row;
+        }
+        
+        /**
+         * Write all rows; IO failures inside the source are thrown as UncheckedIOException
+         */
+        void write(Writer writer, Format format) throws IOException {
+            if (format == Format.CSV) {
+                CsvWriter csv = new CsvWriter(writer);
+                csv.writeRecord(columns);
+                source.accept(element -> {
+                    try {
+                        csv.writeRecord(row.apply(element));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return;
+            }
+            
+            Gson gson = GsonUtil.getGson();
+            TypeAdapter<T> adapter = gson.getAdapter(type);
+            source.accept(element -> {
+                try {
+                    adapter.write(gson.newJsonWriter(writer), element);
+                    writer.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
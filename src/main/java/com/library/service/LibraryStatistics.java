@@ -0,0 +1,321 @@
+package com.library.service;
+
+import com.library.dao.BorrowingRecordDAO;
+import com.library.dao.FineDAO;
+import com.library.dao.UserDAO;
+import com.library.entity.BorrowingRecord;
+import com.library.entity.Fine;
+import com.library.entity.User;
+import com.library.util.JPAUtil;
+import com.library.util.LatencyHistogram;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dashboard counters for users, borrowings and fines, held in memory so the statistics endpoints
+ * answer without touching the database. The services report every change once it has committed;
+ * every jobs.statistics.reconcileMinutes the counters are reloaded with grouped counts, which
+ * corrects drift from changes made outside the services (or racing with a reload). Deletes that
+ * cascade to borrowings and fines invalidate the counters, so the next read reloads them.
+ */
+public final class LibraryStatistics {
+    
+    private static final int RECONCILE_MINUTES = JPAUtil.getIntConfig("jobs.statistics.reconcileMinutes", 10);
+    
+    private static final UserDAO userDAO = new UserDAO();
+    private static final BorrowingRecordDAO borrowingRecordDAO = new BorrowingRecordDAO();
+    private static final FineDAO fineDAO = new FineDAO();
+    
+    // Filled with every constant up front and never modified structurally, so reads need no lock
+    private static final Map<User.UserRole, LongAdder> usersByRole = counters(User.UserRole.class);
+    private static final Map<User.UserStatus, LongAdder> usersByStatus = counters(User.UserStatus.class);
+    private static final Map<BorrowingRecord.BorrowStatus, LongAdder> borrowingsByStatus = counters(BorrowingRecord.BorrowStatus.class);
+    private static final Map<Fine.FineStatus, LongAdder> finesByStatus = counters(Fine.FineStatus.class);
+    private static final Map<Fine.FineStatus, AtomicReference<BigDecimal>> fineAmountsByStatus = new EnumMap<>(Fine.FineStatus.class);
+    
+    static {
+        for (Fine.FineStatus status : Fine.FineStatus.values()) {
+            fineAmountsByStatus.put(status, new AtomicReference<>(BigDecimal.ZERO));
+        }
+    }
+    
+    private static volatile boolean loaded;
+    private static final LongAdder reconciliations = new LongAdder();
+    private static final LatencyHistogram reconcileDuration = new LatencyHistogram();
+    private static volatile Map<String, Object> lastReconciliation;
+    
+    private static final Object reconcileLock = new Object();
+    private static ScheduledExecutorService scheduler;
+    
+    private LibraryStatistics() {
+    }
+    
+    private static <E extends Enum<E>> Map<E, LongAdder> counters(Class<E> type) {
+        Map<E, LongAdder> counters = new EnumMap<>(type);
+        for (E constant : type.getEnumConstants()) {
+            counters.put(constant, new LongAdder());
+        }
+        return counters;
+    }
+    
+    /**
+     * Load the counters now and reconcile them every jobs.statistics.reconcileMinutes;
+     * 0 or less leaves them to load on first read and to manual reconciliation
+     */
+    public static synchronized void start() {
+        if (scheduler != null || RECONCILE_MINUTES <= 0) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "statistics-reconcile");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(LibraryStatistics::reconcile, 0,
+            TimeUnit.MINUTES.toSeconds(RECONCILE_MINUTES), TimeUnit.SECONDS);
+    }
+    
+    /**
+     * Stop scheduling reconciliations
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+    
+    static void userCreated(User.UserRole role, User.UserStatus status) {
+        JPAUtil.afterCommit(() -> {
+            usersByRole.get(role).increment();
+            usersByStatus.get(status).increment();
+        });
+    }
+    
+    static void userChanged(User.UserRole previousRole, User.UserStatus previousStatus,
+                            User.UserRole role, User.UserStatus status) {
+        if (previousRole == role && previousStatus == status) {
+            return;
+        }
+        JPAUtil.afterCommit(() -> {
+            usersByRole.get(previousRole).decrement();
+            usersByRole.get(role).increment();
+            usersByStatus.get(previousStatus).decrement();
+            usersByStatus.get(status).increment();
+        });
+    }
+    
+    /**
+     * Record a delete whose effect on the counters is not known here, such as a user or book
+     * delete cascading to borrowing records and fines; the next read reloads all counters
+     */
+    static void invalidate() {
+        JPAUtil.afterCommit(() -> loaded = false);
+    }
+    
+    static void borrowed() {
+        JPAUtil.afterCommit(() -> borrowingsByStatus.get(BorrowingRecord.BorrowStatus.BORROWED).increment());
+    }
+    
+    static void returned(BorrowingRecord.BorrowStatus previousStatus) {
+        JPAUtil.afterCommit(() -> {
+            borrowingsByStatus.get(previousStatus).decrement();
+            borrowingsByStatus.get(BorrowingRecord.BorrowStatus.RETURNED).increment();
+        });
+    }
+    
+    static void markedOverdue(int count) {
+        JPAUtil.afterCommit(() -> {
+            borrowingsByStatus.get(BorrowingRecord.BorrowStatus.BORROWED).add(-count);
+            borrowingsByStatus.get(BorrowingRecord.BorrowStatus.OVERDUE).add(count);
+        });
+    }
+    
+    static void finesUpserted(FineDAO.UpsertResult result) {
+        if (result.getCreated() == 0 && result.getAmountChange().signum() == 0) {
+            return;
+        }
+        JPAUtil.afterCommit(() -> {
+            finesByStatus.get(Fine.FineStatus.PENDING).add(result.getCreated());
+            fineAmountsByStatus.get(Fine.FineStatus.PENDING).accumulateAndGet(result.getAmountChange(), BigDecimal::add);
+        });
+    }
+    
+    /**
+     * Get user counts: total, per role and active
+     */
+    public static Map<String, Object> getUserStatistics() {
+        ensureLoaded();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalUsers", sum(usersByRole));
+        stats.put("admins", usersByRole.get(User.UserRole.ADMIN).sum());
+        stats.put("instructors", usersByRole.get(User.UserRole.INSTRUCTOR).sum());
+        stats.put("users", usersByRole.get(User.UserRole.USER).sum());
+        stats.put("activeUsers", usersByStatus.get(User.UserStatus.ACTIVE).sum());
+        stats.put("inactiveUsers", usersByStatus.get(User.UserStatus.INACTIVE).sum());
+        stats.put("suspendedUsers", usersByStatus.get(User.UserStatus.SUSPENDED).sum());
+        return stats;
+    }
+    
+    /**
+     * Get borrowing record counts: total and per status
+     */
+    public static Map<String, Object> getBorrowingStatistics() {
+        ensureLoaded();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalBorrowings", sum(borrowingsByStatus));
+        stats.put("borrowed", borrowingsByStatus.get(BorrowingRecord.BorrowStatus.BORROWED).sum());
+        stats.put("overdue", borrowingsByStatus.get(BorrowingRecord.BorrowStatus.OVERDUE).sum());
+        stats.put("returned", borrowingsByStatus.get(BorrowingRecord.BorrowStatus.RETURNED).sum());
+        stats.put("lost", borrowingsByStatus.get(BorrowingRecord.BorrowStatus.LOST).sum());
+        return stats;
+    }
+    
+    /**
+     * Get fine counts and amounts: total, pending, paid and waived
+     */
+    public static Map<String, Object> getFineStatistics() {
+        ensureLoaded();
+        BigDecimal pending = fineAmountsByStatus.get(Fine.FineStatus.PENDING).get();
+        BigDecimal paid = fineAmountsByStatus.get(Fine.FineStatus.PAID).get();
+        BigDecimal waived = fineAmountsByStatus.get(Fine.FineStatus.WAIVED).get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalFines", sum(finesByStatus));
+        stats.put("pendingFines", finesByStatus.get(Fine.FineStatus.PENDING).sum());
+        stats.put("totalAmount", pending.add(paid).add(waived));
+        stats.put("pendingAmount", pending);
+        stats.put("paidAmount", paid);
+        stats.put("waivedAmount", waived);
+        return stats;
+    }
+    
+    /**
+     * Get the reconciliation schedule and the outcome of the last reconciliation
+     */
+    public static Map<String, Object> getReconciliationStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reconcileMinutes", RECONCILE_MINUTES);
+        stats.put("loaded", loaded);
+        stats.put("reconciliations", reconciliations.sum());
+        stats.put("reconcileDuration", reconcileDuration.snapshot());
+        stats.put("lastReconciliation", lastReconciliation);
+        return stats;
+    }
+    
+    private static long sum(Map<?, LongAdder> counters) {
+        long total = 0;
+        for (LongAdder counter : counters.values()) {
+            total += counter.sum();
+        }
+        return total;
+    }
+    
+    private static void ensureLoaded() {
+        if (!loaded) {
+            synchronized (reconcileLock) {
+                if (!loaded) {
+                    reconcileCounters();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Reload every counter from the database now
+     * @return when it ran, how long it took, and how far each counter had drifted (non-zero only)
+     */
+    public static Map<String, Object> reconcile() {
+        synchronized (reconcileLock) {
+            return reconcileCounters();
+        }
+    }
+    
+    private static Map<String, Object> reconcileCounters() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        Map<String, Object> drift = new LinkedHashMap<>();
+        String error = null;
+        
+        try {
+            // Query everything first, so a failure leaves the counters as they were
+            List<Object[]> users = userDAO.countByRoleAndStatus();
+            List<Object[]> borrowings = borrowingRecordDAO.countByStatus();
+            List<Object[]> fines = fineDAO.sumByStatus();
+            
+            Map<User.UserRole, Long> roleCounts = new EnumMap<>(User.UserRole.class);
+            Map<User.UserStatus, Long> statusCounts = new EnumMap<>(User.UserStatus.class);
+            for (Object[] row : users) {
+                roleCounts.merge((User.UserRole) row[0], (Long) row[2], Long::sum);
+                statusCounts.merge((User.UserStatus) row[1], (Long) row[2], Long::sum);
+            }
+            reset(usersByRole, roleCounts, "users.", drift);
+            reset(usersByStatus, statusCounts, "users.", drift);
+            
+            Map<BorrowingRecord.BorrowStatus, Long> borrowingCounts = new EnumMap<>(BorrowingRecord.BorrowStatus.class);
+            for (Object[] row : borrowings) {
+                borrowingCounts.put((BorrowingRecord.BorrowStatus) row[0], (Long) row[1]);
+            }
+            reset(borrowingsByStatus, borrowingCounts, "borrowings.", drift);
+            
+            Map<Fine.FineStatus, Long> fineCounts = new EnumMap<>(Fine.FineStatus.class);
+            Map<Fine.FineStatus, BigDecimal> fineAmounts = new EnumMap<>(Fine.FineStatus.class);
+            for (Object[] row : fines) {
+                fineCounts.put((Fine.FineStatus) row[0], (Long) row[1]);
+                fineAmounts.put((Fine.FineStatus) row[0], (BigDecimal) row[2]);
+            }
+            reset(finesByStatus, fineCounts, "fines.", drift);
+            for (Fine.FineStatus status : Fine.FineStatus.values()) {
+                BigDecimal actual = fineAmounts.getOrDefault(status, BigDecimal.ZERO);
+                BigDecimal previous = fineAmountsByStatus.get(status).getAndSet(actual);
+                if (loaded && previous.compareTo(actual) != 0) {
+                    drift.put("fines." + status + ".amount", actual.subtract(previous));
+                }
+            }
+            loaded = true;
+        } catch (Exception e) {
+            error = e.getMessage();
+            System.err.println("Error reconciling statistics: " + e.getMessage());
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        reconciliations.increment();
+        reconcileDuration.record(elapsed);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", startedAt);
+        result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        result.put("drift", drift);
+        result.put("error", error);
+        lastReconciliation = result;
+        if (!drift.isEmpty()) {
+            System.err.println("Statistics reconciled, corrected drift: " + drift);
+        }
+        return result;
+    }
+    
+    /**
+     * Set each counter to its database count, recording the difference when the counters
+     * had been loaded before
+     */
+    private static <E extends Enum<E>> void reset(Map<E, LongAdder> counters, Map<E, Long> actual,
+                                                  String prefix, Map<String, Object> drift) {
+        for (Map.Entry<E, LongAdder> entry : counters.entrySet()) {
+            long count = actual.getOrDefault(entry.getKey(), 0L);
+            long previous = entry.getValue().sumThenReset();
+            entry.getValue().add(count);
+            if (loaded && previous != count) {
+                drift.put(prefix + entry.getKey(), count - previous);
+            }
+        }
+    }
+}
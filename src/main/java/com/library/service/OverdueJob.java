@@ -0,0 +1,171 @@
+package com.library.service;
+
+import com.library.dao.BorrowingRecordDAO;
+import com.library.dao.FineDAO;
+import com.library.util.JPAUtil;
+import com.library.util.LatencyHistogram;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background job that flags borrowed records past their due date as OVERDUE and keeps their
+ * pending fines up to date, so overdue reads are a plain status lookup. Both steps work in
+ * batches of jobs.overdue.batchSize records, one transaction per batch. Runs, scheduled or
+ * manual, happen one at a time on the job's own thread, outside any request unit of work.
+ */
+public final class OverdueJob {
+    
+    private static final int BATCH_SIZE = Math.max(1, JPAUtil.getIntConfig("jobs.overdue.batchSize", 500));
+    private static final int INTERVAL_MINUTES = JPAUtil.getIntConfig("jobs.overdue.intervalMinutes", 15);
+    private static final long INITIAL_DELAY_SECONDS = 30;
+    
+    private static final BorrowingRecordDAO borrowingRecordDAO = new BorrowingRecordDAO();
+    private static final FineDAO fineDAO = new FineDAO();
+    
+    private static final LongAdder runs = new LongAdder();
+    private static final LongAdder failedRuns = new LongAdder();
+    private static final LongAdder totalMarkedOverdue = new LongAdder();
+    private static final LongAdder totalFinesCreated = new LongAdder();
+    private static final LongAdder totalFinesUpdated = new LongAdder();
+    private static final LatencyHistogram runDuration = new LatencyHistogram();
+    private static volatile Map<String, Object> lastRun;
+    
+    private static ScheduledExecutorService scheduler;
+    private static boolean scheduled;
+    
+    private OverdueJob() {
+    }
+    
+    /**
+     * Schedule the job every jobs.overdue.intervalMinutes; 0 or less leaves it to manual runs
+     */
+    public static synchronized void start() {
+        if (scheduled || INTERVAL_MINUTES <= 0) {
+            return;
+        }
+        executor().scheduleWithFixedDelay(OverdueJob::runBatches, INITIAL_DELAY_SECONDS,
+            TimeUnit.MINUTES.toSeconds(INTERVAL_MINUTES), TimeUnit.SECONDS);
+        scheduled = true;
+    }
+    
+    /**
+     * Run the job now and wait for it. The run is queued on the job's thread, after any run in
+     * progress, so its batches commit on their own rather than in the caller's unit of work.
+     * @return the statistics of this run
+     */
+    public static Map<String, Object> runNow() throws InterruptedException, ExecutionException {
+        return executor().submit(OverdueJob::runBatches).get();
+    }
+    
+    private static synchronized ScheduledExecutorService executor() {
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "overdue-job");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+    
+    private static Map<String, Object> runBatches() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        long start = System.nanoTime();
+        int markedOverdue = 0;
+        int overdueChecked = 0;
+        int finesCreated = 0;
+        int finesUpdated = 0;
+        String error = null;
+        
+        try {
+            // Flag everything due before the run started, earliest first
+            int marked;
+            while ((marked = borrowingRecordDAO.markOverdueBatch(startedAt, BATCH_SIZE)) > 0) {
+                LibraryStatistics.markedOverdue(marked);
+                markedOverdue += marked;
+            }
+            
+            // Accrue fines for all overdue records, including those flagged by earlier runs
+            Long afterId = 0L;
+            List<Object[]> rows;
+            while (!(rows = borrowingRecordDAO.findOverdueAfter(afterId, BATCH_SIZE)).isEmpty()) {
+                List<FineDAO.Charge> charges = new ArrayList<>(rows.size());
+                for (Object[] row : rows) {
+                    long daysOverdue = Duration.between((LocalDateTime) row[2], startedAt).toDays();
+                    FineDAO.Charge charge = BorrowingService.overdueCharge((Long) row[0], (Long) row[1], daysOverdue);
+                    if (charge != null) {
+                        charges.add(charge);
+                    }
+                }
+                FineDAO.UpsertResult result = fineDAO.upsertFines(charges);
+                LibraryStatistics.finesUpserted(result);
+                finesCreated += result.getCreated();
+                finesUpdated += result.getUpdated();
+                overdueChecked += rows.size();
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        } catch (Exception e) {
+            error = e.getMessage();
+            failedRuns.increment();
+            System.err.println("Error in overdue job: " + e.getMessage());
+        }
+        
+        long elapsed = System.nanoTime() - start;
+        runs.increment();
+        runDuration.record(elapsed);
+        totalMarkedOverdue.add(markedOverdue);
+        totalFinesCreated.add(finesCreated);
+        totalFinesUpdated.add(finesUpdated);
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("startedAt", startedAt);
+        result.put("durationMs", TimeUnit.NANOSECONDS.toMillis(elapsed));
+        result.put("markedOverdue", markedOverdue);
+        result.put("overdueChecked", overdueChecked);
+        result.put("finesCreated", finesCreated);
+        result.put("finesUpdated", finesUpdated);
+        result.put("error", error);
+        lastRun = result;
+        System.err.println("Overdue job: " + markedOverdue + " records flagged, " + overdueChecked + " checked, " + finesCreated +
+            " fines created, " + finesUpdated + " fines updated in " + result.get("durationMs") + " ms");
+        return result;
+    }
+    
+    /**
+     * Get schedule, last run and cumulative statistics
+     */
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("intervalMinutes", INTERVAL_MINUTES);
+        stats.put("batchSize", BATCH_SIZE);
+        stats.put("runs", runs.sum());
+        stats.put("failedRuns", failedRuns.sum());
+        stats.put("totalMarkedOverdue", totalMarkedOverdue.sum());
+        stats.put("totalFinesCreated", totalFinesCreated.sum());
+        stats.put("totalFinesUpdated", totalFinesUpdated.sum());
+        stats.put("runDuration", runDuration.snapshot());
+        stats.put("lastRun", lastRun);
+        return stats;
+    }
+    
+    /**
+     * Stop scheduling runs; a run in progress finishes
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+            scheduled = false;
+        }
+    }
+}
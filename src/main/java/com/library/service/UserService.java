@@ -1,10 +1,17 @@
 package com.library.service;
 
 import com.library.dao.UserDAO;
+import com.library.dto.UserDTO;
+import com.library.dto.UserRequest;
 import com.library.entity.User;
-import com.library.security.PasswordUtil;
+import com.library.security.PasswordHasher;
+import com.library.security.RevokedUserCache;
+import com.library.util.PageCursor;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -19,29 +26,39 @@ public class UserService {
     }
     
     /**
-     * Get all users
+     * Pass every user to an action, one at a time
      */
-    public List<Map<String, Object>> getAllUsers() {
-        List<User> users = userDAO.findAll();
-        return users.stream().map(this::getUserInfo).collect(Collectors.toList());
+    public void forEachUser(Consumer<UserDTO> action) {
+        userDAO.forEachDTO(action);
+    }
+    
+    /**
+     * Get one page of users in ID order
+     * @param after cursor returned with the previous page, or null for the first page
+     * @throws IllegalArgumentException if the cursor is invalid
+     */
+    public Map<String, Object> getUsersPage(String after, int limit) {
+        Long afterId = after != null ? PageCursor.decodeId(after) : null;
+        List<UserDTO> users = userDAO.findDTOPageAfter(afterId, limit + 1);
+        return PageCursor.toPage(users, limit, user -> PageCursor.encode(user.getUserId()), Function.identity());
     }
     
     /**
      * Get user by ID
      */
-    public Optional<Map<String, Object>> getUserById(Long userId) {
+    public Optional<UserDTO> getUserById(Long userId) {
         Optional<User> userOpt = userDAO.findById(userId);
-        return userOpt.map(this::getUserInfo);
+        return userOpt.map(UserDTO::from);
     }
     
     /**
      * Get users by role
      */
-    public List<Map<String, Object>> getUsersByRole(String role) {
+    public List<UserDTO> getUsersByRole(String role) {
         try {
             User.UserRole userRole = User.UserRole.valueOf(role.toUpperCase());
             List<User> users = userDAO.findByRole(userRole);
-            return users.stream().map(this::getUserInfo).collect(Collectors.toList());
+            return users.stream().map(UserDTO::from).collect(Collectors.toList());
         } catch (IllegalArgumentException e) {
             return new ArrayList<>();
         }
@@ -50,24 +67,31 @@ public class UserService {
     /**
      * Search users
      */
-    public List<Map<String, Object>> searchUsers(String searchTerm) {
+    public List<UserDTO> searchUsers(String searchTerm) {
         List<User> users = userDAO.searchUsers(searchTerm);
-        return users.stream().map(this::getUserInfo).collect(Collectors.toList());
+        return users.stream().map(UserDTO::from).collect(Collectors.toList());
+    }
+    
+    /**
+     * Create user on the password hashing pool, leaving the request thread free.
+     * A rejected attempt completes immediately with a "retryAfter" value in seconds.
+     */
+    public CompletableFuture<Map<String, Object>> createUserAsync(UserRequest userData) {
+        return AuthService.onHashingPool(() -> createUser(userData));
     }
     
     /**
      * Create user (Admin only)
      */
-    public Map<String, Object> createUser(Map<String, String> userData) {
+    public Map<String, Object> createUser(UserRequest userData) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            String username = userData.get("username");
-            String email = userData.get("email");
-            String password = userData.get("password");
-            String firstName = userData.get("firstName");
-            String lastName = userData.get("lastName");
-            String role = userData.get("role");
+            String username = userData.getUsername();
+            String email = userData.getEmail();
+            String password = userData.getPassword();
+            String firstName = userData.getFirstName();
+            String lastName = userData.getLastName();
             
             // Validate required fields
             if (username == null || email == null || password == null || 
@@ -91,25 +115,22 @@ public class UserService {
             }
             
             // Create user
-            User user = new User(username, email, PasswordUtil.hashPassword(password), firstName, lastName);
-            user.setPhone(userData.get("phone"));
-            user.setAddress(userData.get("address"));
+            User user = new User(username, email, PasswordHasher.hash(password), firstName, lastName);
+            user.setPhone(userData.getPhone());
+            user.setAddress(userData.getAddress());
             
             // Set role
-            if (role != null) {
-                try {
-                    user.setRole(User.UserRole.valueOf(role.toUpperCase()));
-                } catch (IllegalArgumentException e) {
-                    user.setRole(User.UserRole.USER);
-                }
+            if (userData.getRole() != null) {
+                user.setRole(userData.getRole());
             }
             
             User savedUser = userDAO.save(user);
+            LibraryStatistics.userCreated(savedUser.getRole(), savedUser.getStatus());
             
             response.put("success", true);
             response.put("message", "User created successfully");
-            response.put("user", getUserInfo(savedUser));
-            
+            response.put("user", UserDTO.from(savedUser));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error creating user: " + e.getMessage());
@@ -121,7 +142,7 @@ public class UserService {
     /**
      * Update user
      */
-    public Map<String, Object> updateUser(Long userId, Map<String, String> userData) {
+    public Map<String, Object> updateUser(Long userId, UserRequest userData) {
         Map<String, Object> response = new HashMap<>();
         
         try {
@@ -133,16 +154,18 @@ public class UserService {
             }
             
             User user = userOpt.get();
+            User.UserRole previousRole = user.getRole();
+            User.UserStatus previousStatus = user.getStatus();
             
             // Update fields
-            if (userData.containsKey("firstName")) {
-                user.setFirstName(userData.get("firstName"));
+            if (userData.getFirstName() != null) {
+                user.setFirstName(userData.getFirstName());
             }
-            if (userData.containsKey("lastName")) {
-                user.setLastName(userData.get("lastName"));
+            if (userData.getLastName() != null) {
+                user.setLastName(userData.getLastName());
             }
-            if (userData.containsKey("email")) {
-                String newEmail = userData.get("email");
+            if (userData.getEmail() != null) {
+                String newEmail = userData.getEmail();
                 if (!newEmail.equals(user.getEmail()) && userDAO.emailExists(newEmail)) {
                     response.put("success", false);
                     response.put("message", "Email already exists");
@@ -150,29 +173,34 @@ public class UserService {
                 }
                 user.setEmail(newEmail);
             }
-            if (userData.containsKey("phone")) {
-                user.setPhone(userData.get("phone"));
+            if (userData.getPhone() != null) {
+                user.setPhone(userData.getPhone());
             }
-            if (userData.containsKey("address")) {
-                user.setAddress(userData.get("address"));
+            if (userData.getAddress() != null) {
+                user.setAddress(userData.getAddress());
             }
-            if (userData.containsKey("role")) {
-                try {
-                    user.setRole(User.UserRole.valueOf(userData.get("role").toUpperCase()));
-                } catch (IllegalArgumentException ignored) {}
+            if (userData.getRole() != null) {
+                user.setRole(userData.getRole());
             }
-            if (userData.containsKey("status")) {
-                try {
-                    user.setStatus(User.UserStatus.valueOf(userData.get("status").toUpperCase()));
-                } catch (IllegalArgumentException ignored) {}
+            if (userData.getStatus() != null) {
+                user.setStatus(userData.getStatus());
             }
             
             User updatedUser = userDAO.update(user);
+            LibraryStatistics.userChanged(previousRole, previousStatus, updatedUser.getRole(), updatedUser.getStatus());
+            
+            // Tokens carry role and status, so outstanding ones must not outlive a change
+            if (updatedUser.getStatus() != previousStatus) {
+                RevokedUserCache.statusChanged(userId, updatedUser.getStatus());
+            }
+            if (updatedUser.getRole() != previousRole) {
+                RevokedUserCache.revokeIssuedTokens(userId);
+            }
             
             response.put("success", true);
             response.put("message", "User updated successfully");
-            response.put("user", getUserInfo(updatedUser));
-            
+            response.put("user", UserDTO.from(updatedUser));
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error updating user: " + e.getMessage());
@@ -196,10 +224,13 @@ public class UserService {
             }
             
             userDAO.delete(userId);
+            RevokedUserCache.userDeleted(userId);
+            // Borrowing records and fines go with the user
+            LibraryStatistics.invalidate();
             
             response.put("success", true);
             response.put("message", "User deleted successfully");
-            
+        
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error deleting user: " + e.getMessage());
@@ -212,35 +243,6 @@ public class UserService {
      * Get user statistics
      */
     public Map<String, Object> getUserStatistics() {
-        Map<String, Object> stats = new HashMap<>();
-        
-        stats.put("totalUsers", userDAO.count());
-        stats.put("admins", userDAO.countByRole(User.UserRole.ADMIN));
-        stats.put("instructors", userDAO.countByRole(User.UserRole.INSTRUCTOR));
-        stats.put("users", userDAO.countByRole(User.UserRole.USER));
-        stats.put("activeUsers", userDAO.findByStatus(User.UserStatus.ACTIVE).size());
-        
-        return stats;
-    }
-    
-    /**
-     * Get user information map (without sensitive data)
-     */
-    private Map<String, Object> getUserInfo(User user) {
-        Map<String, Object> userInfo = new HashMap<>();
-        userInfo.put("userId", user.getUserId());
-        userInfo.put("username", user.getUsername());
-        userInfo.put("email", user.getEmail());
-        userInfo.put("firstName", user.getFirstName());
-        userInfo.put("lastName", user.getLastName());
-        userInfo.put("fullName", user.getFullName());
-        userInfo.put("phone", user.getPhone());
-        userInfo.put("address", user.getAddress());
-        userInfo.put("role", user.getRole().name());
-        userInfo.put("status", user.getStatus().name());
-        userInfo.put("registrationDate", user.getRegistrationDate());
-        userInfo.put("lastLogin", user.getLastLogin());
-        return userInfo;
+        return LibraryStatistics.getUserStatistics();
     }
 }
-
@@ -0,0 +1,38 @@
+package com.library.util;
+
+import com.library.search.BookSearchIndex;
+import com.library.security.PasswordHasher;
+import com.library.service.LibraryStatistics;
+import com.library.service.OverdueJob;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+
+/**
+ * Application lifecycle listener that warms the search index, calibrates password hashing and
+ * schedules the overdue job and statistics reconciliation on startup, and releases shared
+ * resources on shutdown
+ */
+public class AppContextListener implements ServletContextListener {
+    
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        // Other resources are initialized lazily on first use
+        BookSearchIndex.getInstance().buildAsync();
+        
+        // Calibrating takes up to a second of hashing, so it must not delay deployment
+        Thread calibration = new Thread(PasswordHasher::configureCost, "bcrypt-calibration");
+        calibration.setDaemon(true);
+        calibration.start();
+        
+        OverdueJob.start();
+        LibraryStatistics.start();
+    }
+    
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        OverdueJob.shutdown();
+        LibraryStatistics.shutdown();
+        PasswordHasher.shutdown();
+        JPAUtil.close();
+    }
+}
@@ -0,0 +1,502 @@
+package com.library.util;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Response compression negotiated from Accept-Encoding.
+ * Static assets with a precompressed sibling (style.css.br / style.css.gz, produced at build time)
+ * are served from that file. Other responses whose content type is in the allowlist are
+ * compressed on the fly with gzip or deflate once they reach the minimum size; smaller bodies
+ * go out unchanged. Init parameters: minSize (bytes) and mimeTypes (comma-separated).
+ */
+public class CompressionFilter implements Filter {
+    
+    private static final int DEFAULT_MIN_SIZE = 1024;
+    private static final String DEFAULT_MIME_TYPES = "application/json,text/html,text/css,text/plain,"
+        + "text/javascript,application/javascript,application/xml,image/svg+xml,text/csv,application/x-ndjson";
+    
+    // Preference order when the client accepts several encodings with the same weight
+    private static final List<String> DYNAMIC_ENCODINGS = List.of("gzip", "deflate");
+    private static final List<String> STATIC_ENCODINGS = List.of("br", "gzip");
+    private static final Map<String, String> STATIC_SUFFIXES = Map.of("br", ".br", "gzip", ".gz");
+    
+    private int minSize;
+    private Set<String> mimeTypes;
+    private ServletContext servletContext;
+    // Asset path + encoding -> whether a precompressed file exists; the WAR does not change at runtime
+    private final Map<String, Boolean> precompressed = new ConcurrentHashMap<>();
+    
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        servletContext = filterConfig.getServletContext();
+        String size = filterConfig.getInitParameter("minSize");
+        minSize = size != null && !size.isBlank() ? Integer.parseInt(size.trim()) : DEFAULT_MIN_SIZE;
+        String types = filterConfig.getInitParameter("mimeTypes");
+        mimeTypes = new HashSet<>();
+        for (String type : (types != null && !types.isBlank() ? types : DEFAULT_MIME_TYPES).split(",")) {
+            mimeTypes.add(type.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+    
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        String acceptEncoding = httpRequest.getHeader("Accept-Encoding");
+        
+        // Partial content and HEAD requests are passed through untouched
+        if (acceptEncoding == null || httpRequest.getHeader("Range") != null
+                || !("GET".equals(httpRequest.getMethod()) || "POST".equals(httpRequest.getMethod())
+                    || "PUT".equals(httpRequest.getMethod()))) {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        if ("GET".equals(httpRequest.getMethod()) && servePrecompressed(httpRequest, httpResponse, acceptEncoding)) {
+            return;
+        }
+        
+        Optional<String> encoding = negotiate(acceptEncoding, DYNAMIC_ENCODINGS);
+        if (encoding.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        
+        CompressingResponse wrapper = new CompressingResponse(httpResponse, encoding.get());
+        chain.doFilter(request, wrapper);
+        if (request.isAsyncStarted()) {
+            // The body is written on another thread; it is completed when that thread closes the stream
+            request.getAsyncContext().addListener(new FinishOnComplete(wrapper));
+        } else {
+            wrapper.finish();
+        }
+    }
+    
+    /**
+     * Serve a build-time compressed copy of a static asset, if one exists for an accepted encoding
+     */
+    private boolean servePrecompressed(HttpServletRequest request, HttpServletResponse response,
+                                       String acceptEncoding) throws IOException {
+        String path = request.getServletPath() + (request.getPathInfo() != null ? request.getPathInfo() : "");
+        if (path.endsWith("/")) {
+            path += "index.html";
+        }
+        String mimeType = servletContext.getMimeType(path);
+        if (mimeType == null || !mimeTypes.contains(mimeType.toLowerCase(Locale.ROOT))) {
+            return false;
+        }
+        
+        for (String encoding : acceptedInPreferenceOrder(acceptEncoding, STATIC_ENCODINGS)) {
+            String variant = path + STATIC_SUFFIXES.get(encoding);
+            if (!precompressed.computeIfAbsent(variant, this::resourceExists)) {
+                continue;
+            }
+            URL resource = servletContext.getResource(variant);
+            URL original = servletContext.getResource(path);
+            if (resource == null || original == null) {
+                continue;
+            }
+            
+            URLConnection connection = resource.openConnection();
+            long lastModified = original.openConnection().getLastModified();
+            response.addHeader("Vary", "Accept-Encoding");
+            if (lastModified > 0) {
+                long since = request.getDateHeader("If-Modified-Since");
+                if (since >= 0 && lastModified / 1000 <= since / 1000) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return true;
+                }
+                response.setDateHeader("Last-Modified", lastModified);
+            }
+            response.setContentType(mimeType);
+            response.setHeader("Content-Encoding", encoding);
+            long length = connection.getContentLengthLong();
+            if (length >= 0) {
+                response.setContentLengthLong(length);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                in.transferTo(response.getOutputStream());
+            }
+            return true;
+        }
+        return false;
+    }
+    
+    private boolean resourceExists(String path) {
+        try {
+            return servletContext.getResource(path) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Pick the supported encoding the client weights highest, or empty if none is acceptable
+     */
+    static Optional<String> negotiate(String acceptEncoding, List<String> supported) {
+        List<String> accepted = acceptedInPreferenceOrder(acceptEncoding, supported);
+        return accepted.isEmpty() ? Optional.empty() : Optional.of(accepted.get(0));
+    }
+    
+    /**
+     * The supported encodings the client accepts (q > 0), highest weight first; ties keep the given order
+     */
+    private static List<String> acceptedInPreferenceOrder(String acceptEncoding, List<String> supported) {
+        Map<String, Double> weights = new HashMap<>();
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < tokens.length; i++) {
+                String parameter = tokens[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        q = Double.parseDouble(parameter.substring(2));
+                    } catch (NumberFormatException e) {
+                        q = 0;
+                    }
+                }
+            }
+            if (!coding.isEmpty()) {
+                weights.put(coding, q);
+            }
+        }
+        
+        // Codings not listed take the weight of "*", or are not acceptable without one
+        double otherWeight = weights.getOrDefault("*", 0.0);
+        return supported.stream()
+            .filter(coding -> weights.getOrDefault(coding, otherWeight) > 0)
+            .sorted(Comparator.comparingDouble((String coding) -> weights.getOrDefault(coding, otherWeight)).reversed())
+            .collect(Collectors.toList());
+    }
+    
+    @Override
+    public void destroy() {
+        precompressed.clear();
+    }
+    
+    /**
+     * Holds back the first minSize bytes to decide between a compressed and an identity body
+     */
+    private class CompressingResponse extends HttpServletResponseWrapper {
+        private final String encoding;
+        private CompressingStream stream;
+        private PrintWriter writer;
+        
+        CompressingResponse(HttpServletResponse response, String encoding) {
+            super(response);
+            this.encoding = encoding;
+        }
+        
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called");
+            }
+            return stream();
+        }
+        
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (stream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called");
+                }
+                String charset = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.ISO_8859_1.name();
+                writer = new PrintWriter(new OutputStreamWriter(stream(), charset));
+            }
+            return writer;
+        }
+        
+        private CompressingStream stream() throws IOException {
+            if (stream == null) {
+                stream = new CompressingStream(this, (HttpServletResponse) getResponse());
+            }
+            return stream;
+        }
+        
+        // The length of a compressed body is unknown until it is written
+        @Override
+        public void setContentLength(int len) {
+        }
+        
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+        
+        @Override
+        public void setHeader(String name, String value) {
+            if (!"Content-Length".equalsIgnoreCase(name)) {
+                super.setHeader(name, value);
+            }
+        }
+        
+        @Override
+        public void addHeader(String name, String value) {
+            if (!"Content-Length".equalsIgnoreCase(name)) {
+                super.addHeader(name, value);
+            }
+        }
+        
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.flush();
+            } else {
+                super.flushBuffer();
+            }
+        }
+        
+        @Override
+        public void reset() {
+            super.reset();
+            if (stream != null) {
+                stream.reset();
+            }
+        }
+        
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (stream != null) {
+                stream.reset();
+            }
+        }
+        
+        boolean isCompressible() {
+            int status = getStatus();
+            if (status == HttpServletResponse.SC_NO_CONTENT || status == HttpServletResponse.SC_NOT_MODIFIED
+                    || containsHeader("Content-Encoding")) {
+                return false;
+            }
+            String contentType = getContentType();
+            if (contentType == null) {
+                return false;
+            }
+            int semicolon = contentType.indexOf(';');
+            String mimeType = (semicolon >= 0 ? contentType.substring(0, semicolon) : contentType).trim();
+            return mimeTypes.contains(mimeType.toLowerCase(Locale.ROOT));
+        }
+        
+        void startCompression() {
+            HttpServletResponse response = (HttpServletResponse) getResponse();
+            response.addHeader("Vary", "Accept-Encoding");
+            response.setHeader("Content-Encoding", encoding);
+            String etag = response.getHeader("ETag");
+            if (etag != null && !etag.startsWith("W/")) {
+                // The compressed body is not byte-identical to the uncompressed one
+                response.setHeader("ETag", "W/" + etag);
+            }
+        }
+        
+        // Sync flush, so that a flush by a streaming response (import progress lines) reaches the client
+        OutputStream compressor(OutputStream out) throws IOException {
+            return "gzip".equals(encoding) ? new GZIPOutputStream(out, 8192, true) : new DeflaterOutputStream(out, true);
+        }
+        
+        void finish() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (stream != null) {
+                stream.close();
+            }
+        }
+    }
+    
+    /**
+     * Buffers until the threshold, then streams through the compressor (or straight through
+     * when the response turns out not to be compressible)
+     */
+    private class CompressingStream extends ServletOutputStream {
+        private final CompressingResponse wrapper;
+        private final HttpServletResponse response;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(minSize, 32));
+        private OutputStream target;
+        private boolean compressing;
+        private boolean nonBlocking;
+        private boolean closed;
+        
+        CompressingStream(CompressingResponse wrapper, HttpServletResponse response) {
+            this.wrapper = wrapper;
+            this.response = response;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (target == null) {
+                if (buffer.size() + len < minSize) {
+                    buffer.write(b, off, len);
+                    return;
+                }
+                open();
+            }
+            target.write(b, off, len);
+        }
+        
+        /**
+         * Once the threshold is reached, choose the target stream and release the buffered bytes into it
+         */
+        private void open() throws IOException {
+            if (!wrapper.isCompressible()) {
+                openUncompressed(false);
+                return;
+            }
+            wrapper.startCompression();
+            target = wrapper.compressor(response.getOutputStream());
+            compressing = true;
+            buffer.writeTo(target);
+            buffer = null;
+        }
+        
+        /**
+         * Send the body as is, starting with the buffered bytes
+         * @param complete whether the buffer holds the whole body, so its length is known
+         */
+        private void openUncompressed(boolean complete) throws IOException {
+            if (wrapper.isCompressible()) {
+                response.addHeader("Vary", "Accept-Encoding");
+            }
+            if (complete && !response.isCommitted()) {
+                response.setContentLength(buffer.size());
+            }
+            target = response.getOutputStream();
+            buffer.writeTo(target);
+            buffer = null;
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            // Flushing a small body early would commit it uncompressed; wait for the threshold instead
+            if (target != null && !closed) {
+                target.flush();
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (target == null) {
+                openUncompressed(true);
+            }
+            closed = true;
+            target.close();
+        }
+        
+        void reset() {
+            if (target == null) {
+                buffer.reset();
+            }
+        }
+        
+        @Override
+        public boolean isReady() {
+            if (!nonBlocking) {
+                return true;
+            }
+            try {
+                return response.getOutputStream().isReady();
+            } catch (IOException e) {
+                return false;
+            }
+        }
+        
+        /**
+         * Switch to non-blocking writes on the container's stream. The compressor may write several
+         * times per call, which non-blocking output does not allow, so the rest of the body goes
+         * out uncompressed; anything buffered so far is sent first, while writes still block.
+         */
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (compressing) {
+                throw new IllegalStateException("setWriteListener() must be called before the response reaches "
+                    + minSize + " bytes, as the body is already being compressed");
+            }
+            try {
+                if (target == null) {
+                    openUncompressed(false);
+                }
+                nonBlocking = true;
+                response.getOutputStream().setWriteListener(writeListener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+    
+    private static class FinishOnComplete implements AsyncListener {
+        private final CompressingResponse wrapper;
+        
+        FinishOnComplete(CompressingResponse wrapper) {
+            this.wrapper = wrapper;
+        }
+        
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            wrapper.finish();
+        }
+        
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+        
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.library.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * HikariCP metrics tracker that keeps connection acquire-latency and usage histograms in memory
+ */
+public class ConnectionPoolMetrics implements MetricsTrackerFactory {
+    
+    private final LatencyHistogram acquireHistogram = new LatencyHistogram();
+    private final LatencyHistogram usageHistogram = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+    
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireHistogram.record(elapsedAcquiredNanos);
+            }
+            
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageHistogram.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+            
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+    
+    /**
+     * Snapshot of pool state and latency histograms
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        PoolStats current = poolStats;
+        if (current != null) {
+            stats.put("totalConnections", current.getTotalConnections());
+            stats.put("activeConnections", current.getActiveConnections());
+            stats.put("idleConnections", current.getIdleConnections());
+            stats.put("threadsAwaitingConnection", current.getPendingThreads());
+            stats.put("minConnections", current.getMinConnections());
+            stats.put("maxConnections", current.getMaxConnections());
+        }
+        stats.put("connectionTimeouts", timeouts.sum());
+        stats.put("acquireLatency", acquireHistogram.snapshot());
+        stats.put("connectionUsage", usageHistogram.snapshot());
+        return stats;
+    }
+}
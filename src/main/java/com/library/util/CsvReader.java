@@ -0,0 +1,104 @@
+package com.library.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental RFC 4180 CSV reader: comma-separated fields, optionally double-quoted, where
+ * quoted fields may contain commas, line breaks and doubled quotes. Only the current record
+ * is held in memory.
+ */
+public class CsvReader {
+    
+    private final Reader reader;
+    private int pending = -2;
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    
+    /**
+     * @param reader source, buffered by the caller
+     */
+    public CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+    
+    /**
+     * Read the next record
+     * @return the record's fields, or null at the end of the input
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    public List<String> readRecord() throws IOException {
+        int c = next();
+        if (c == -1) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+        
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Unclosed quoted field starting on line " + recordLineNumber);
+                }
+                if (c == '"') {
+                    int following = next();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = next();
+                    if (following != '\n') {
+                        pending = following;
+                    }
+                }
+                if (c != -1) {
+                    lineNumber++;
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+    
+    /**
+     * Line on which the record last returned by readRecord starts (1-based)
+     */
+    public long getRecordLineNumber() {
+        return recordLineNumber;
+    }
+    
+    private int next() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
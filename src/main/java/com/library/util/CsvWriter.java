@@ -0,0 +1,52 @@
+package com.library.util;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * RFC 4180 CSV writer, the counterpart of CsvReader: fields containing a comma, quote or
+ * line break are quoted, null fields are written empty, and records end with CRLF.
+ */
+public class CsvWriter {
+    
+    private final Writer writer;
+    
+    /**
+     * @param writer target, buffered by the caller
+     */
+    public CsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+    
+    /**
+     * Write one record; fields are written with toString()
+     */
+    public void writeRecord(List<?> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object field = fields.get(i);
+            if (field != null) {
+                writeField(field.toString());
+            }
+        }
+        writer.write("\r\n");
+    }
+    
+    private void writeField(String field) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < field.length() && !quote; i++) {
+            char c = field.charAt(i);
+            quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (!quote) {
+            writer.write(field);
+            return;
+        }
+        writer.write('"');
+        writer.write(field.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
@@ -1,44 +1,45 @@
 package com.library.util;
 
+import com.library.dto.DtoTypeAdapterFactory;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonDeserializer;
-import com.google.gson.JsonSerializer;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
+import java.io.IOException;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 
 /**
- * Gson utility with Java 8 Time API support
+ * Gson utility with Java 8 Time API support.
+ * Dates are written as "yyyy-MM-dd" and timestamps as "yyyy-MM-dd HH:mm:ss" by default;
+ * start with -Djson.dateTimeFormat=epochMillis to write timestamps as epoch milliseconds
+ * (in the server time zone) instead. Both timestamp forms are accepted when reading.
  */
 public class GsonUtil {
     
-    private static final DateTimeFormatter DATE_TIME_FORMATTER = 
+    private static final DateTimeFormatter DATE_TIME_FORMATTER =
         DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
     
-    private static final DateTimeFormatter DATE_FORMATTER = 
+    private static final DateTimeFormatter DATE_FORMATTER =
         DateTimeFormatter.ofPattern("yyyy-MM-dd");
     
-    private static final Gson GSON = new GsonBuilder()
-        // LocalDateTime serializer
-        .registerTypeAdapter(LocalDateTime.class, 
-            (JsonSerializer<LocalDateTime>) (src, typeOfSrc, context) -> 
-                context.serialize(src.format(DATE_TIME_FORMATTER)))
-        // LocalDateTime deserializer
-        .registerTypeAdapter(LocalDateTime.class, 
-            (JsonDeserializer<LocalDateTime>) (json, typeOfT, context) -> 
-                LocalDateTime.parse(json.getAsString(), DATE_TIME_FORMATTER))
-        // LocalDate serializer
-        .registerTypeAdapter(LocalDate.class, 
-            (JsonSerializer<LocalDate>) (src, typeOfSrc, context) -> 
-                context.serialize(src.format(DATE_FORMATTER)))
-        // LocalDate deserializer
-        .registerTypeAdapter(LocalDate.class, 
-            (JsonDeserializer<LocalDate>) (json, typeOfT, context) -> 
-                LocalDate.parse(json.getAsString(), DATE_FORMATTER))
-        .serializeNulls()
-        .create();
+    /**
+     * Wire format for LocalDateTime values
+     */
+    public enum DateTimeFormat {
+        TEXT,
+        EPOCH_MILLIS
+    }
+    
+    private static final Gson GSON = createGson(configuredDateTimeFormat());
     
     /**
      * Get configured Gson instance
@@ -47,6 +48,20 @@ public class GsonUtil {
         return GSON;
     }
     
+    /**
+     * Build a Gson instance with the given timestamp wire format
+     */
+    public static Gson createGson(DateTimeFormat dateTimeFormat) {
+        return new GsonBuilder()
+            // Streaming adapters: no intermediate JsonPrimitive per value
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter(dateTimeFormat).nullSafe())
+            .registerTypeAdapter(LocalDate.class, new LocalDateAdapter().nullSafe())
+            // API views (com.library.dto)
+            .registerTypeAdapterFactory(new DtoTypeAdapterFactory())
+            .serializeNulls()
+            .create();
+    }
+    
     /**
      * Convert object to JSON string
      */
@@ -60,5 +75,56 @@ public class GsonUtil {
     public static <T> T fromJson(String json, Class<T> classOfT) {
         return GSON.fromJson(json, classOfT);
     }
+    
+    private static DateTimeFormat configuredDateTimeFormat() {
+        String value = System.getProperty("json.dateTimeFormat", "text");
+        return "epochMillis".equalsIgnoreCase(value) ? DateTimeFormat.EPOCH_MILLIS : DateTimeFormat.TEXT;
+    }
+    
+    private static class LocalDateTimeAdapter extends TypeAdapter<LocalDateTime> {
+        private final DateTimeFormat format;
+        
+        LocalDateTimeAdapter(DateTimeFormat format) {
+            this.format = format;
+        }
+        
+        @Override
+        public void write(JsonWriter out, LocalDateTime value) throws IOException {
+            if (format == DateTimeFormat.EPOCH_MILLIS) {
+                out.value(value.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            } else {
+                out.value(DATE_TIME_FORMATTER.format(value));
+            }
+        }
+        
+        @Override
+        public LocalDateTime read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NUMBER) {
+                return LocalDateTime.ofInstant(Instant.ofEpochMilli(in.nextLong()), ZoneId.systemDefault());
+            }
+            String text = in.nextString();
+            try {
+                return LocalDateTime.parse(text, DATE_TIME_FORMATTER);
+            } catch (DateTimeParseException e) {
+                throw new JsonParseException("Invalid date-time: " + text, e);
+            }
+        }
+    }
+    
+    private static class LocalDateAdapter extends TypeAdapter<LocalDate> {
+        @Override
+        public void write(JsonWriter out, LocalDate value) throws IOException {
+            out.value(DATE_FORMATTER.format(value));
+        }
+        
+        @Override
+        public LocalDate read(JsonReader in) throws IOException {
+            String text = in.nextString();
+            try {
+                return LocalDate.parse(text, DATE_FORMATTER);
+            } catch (DateTimeParseException e) {
+                throw new JsonParseException("Invalid date: " + text, e);
+            }
+        }
+    }
 }
-
@@ -1,8 +1,24 @@
 package com.library.util;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
 import jakarta.persistence.Persistence;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Supplier;
 
 /**
  * Utility class for managing JPA EntityManager instances
@@ -10,18 +26,110 @@ import jakarta.persistence.Persistence;
 public class JPAUtil {
     
     private static final String PERSISTENCE_UNIT_NAME = "LibraryPU";
+    private static final String CONFIG_FILE = "database.properties";
+    private static final Properties configuration = loadConfiguration();
+    private static final ConnectionPoolMetrics poolMetrics = new ConnectionPoolMetrics();
+    private static HikariDataSource dataSource;
     private static EntityManagerFactory entityManagerFactory;
     
+    // Unit of work bound to the current thread (one per JAX-RS request)
+    private static final ThreadLocal<UnitOfWork> currentUnitOfWork = new ThreadLocal<>();
+    
     static {
         try {
-            entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME);
+            dataSource = createDataSource();
+            
+            Map<String, Object> properties = new HashMap<>();
+            properties.put("hibernate.connection.datasource", dataSource);
+            for (String key : configuration.stringPropertyNames()) {
+                if (key.startsWith("hibernate.")) {
+                    properties.put(key, configuration.getProperty(key));
+                }
+            }
+            
+            entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT_NAME, properties);
         } catch (Exception e) {
             System.err.println("Error creating EntityManagerFactory: " + e.getMessage());
             e.printStackTrace();
+            if (dataSource != null) {
+                dataSource.close();
+            }
             throw new ExceptionInInitializerError(e);
         }
     }
     
+    /**
+     * Load database.properties from the classpath, letting system properties override any key
+     */
+    private static Properties loadConfiguration() {
+        Properties props = new Properties();
+        try (InputStream in = JPAUtil.class.getClassLoader().getResourceAsStream(CONFIG_FILE)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading " + CONFIG_FILE + ": " + e.getMessage());
+        }
+        
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("db.") || key.startsWith("auth.") || key.startsWith("http.")
+                    || key.startsWith("jobs.") || key.startsWith("hibernate.")) {
+                props.setProperty(key, System.getProperty(key));
+            }
+        }
+        return props;
+    }
+    
+    /**
+     * Build the pooled DataSource backing the persistence unit
+     */
+    private static HikariDataSource createDataSource() {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(getConfig("db.pool.name", "LibraryPool"));
+        config.setDriverClassName(getConfig("db.driver", null));
+        config.setJdbcUrl(getConfig("db.url", null));
+        config.setUsername(getConfig("db.username", null));
+        config.setPassword(getConfig("db.password", ""));
+        
+        config.setMinimumIdle(getIntConfig("db.pool.minIdle", 5));
+        config.setMaximumPoolSize(getIntConfig("db.pool.maxSize", 20));
+        config.setConnectionTimeout(getIntConfig("db.pool.connectionTimeoutMs", 30000));
+        config.setIdleTimeout(getIntConfig("db.pool.idleTimeoutMs", 600000));
+        config.setMaxLifetime(getIntConfig("db.pool.maxLifetimeMs", 1800000));
+        config.setValidationTimeout(getIntConfig("db.pool.validationTimeoutMs", 5000));
+        config.setLeakDetectionThreshold(getIntConfig("db.pool.leakDetectionThresholdMs", 0));
+        
+        String testQuery = getConfig("db.pool.connectionTestQuery", "");
+        if (!testQuery.isBlank()) {
+            config.setConnectionTestQuery(testQuery);
+        }
+        
+        config.setMetricsTrackerFactory(poolMetrics);
+        return new HikariDataSource(config);
+    }
+    
+    /**
+     * Get a configuration value from database.properties or system properties
+     */
+    public static String getConfig(String key, String defaultValue) {
+        return configuration.getProperty(key, defaultValue);
+    }
+    
+    /**
+     * Get an integer configuration value, falling back to the default when missing or malformed
+     */
+    public static int getIntConfig(String key, int defaultValue) {
+        String value = configuration.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+    
     /**
      * Get EntityManagerFactory instance
      */
@@ -37,12 +145,188 @@ public class JPAUtil {
     }
     
     /**
-     * Close the EntityManagerFactory
+     * Start a unit of work on the current thread. The EntityManager and its transaction
+     * are created lazily on the first {@link #getCurrentEntityManager()} call, so requests
+     * that never touch the database never check out a connection.
+     */
+    public static void beginUnitOfWork() {
+        if (currentUnitOfWork.get() != null) {
+            // Left over from a request that never reached endUnitOfWork; discard it
+            endUnitOfWork(false);
+        }
+        currentUnitOfWork.set(new UnitOfWork());
+    }
+    
+    /**
+     * Check whether a unit of work is bound to the current thread
+     */
+    public static boolean isUnitOfWorkActive() {
+        return currentUnitOfWork.get() != null;
+    }
+    
+    /**
+     * Get the EntityManager of the current unit of work, or null when none is active
+     */
+    public static EntityManager getCurrentEntityManager() {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork == null) {
+            return null;
+        }
+        if (unitOfWork.entityManager == null) {
+            unitOfWork.entityManager = entityManagerFactory.createEntityManager();
+            unitOfWork.entityManager.getTransaction().begin();
+        }
+        return unitOfWork.entityManager;
+    }
+    
+    /**
+     * Finish the current unit of work, committing or rolling back its transaction
+     * @param commit true to commit, false to roll back
+     * @throws RuntimeException if the commit fails (the transaction is rolled back)
+     */
+    public static void endUnitOfWork(boolean commit) {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        currentUnitOfWork.remove();
+        if (unitOfWork == null) {
+            return;
+        }
+        
+        EntityManager em = unitOfWork.entityManager;
+        if (em != null) {
+            try {
+                EntityTransaction transaction = em.getTransaction();
+                if (transaction.isActive()) {
+                    if (commit && !transaction.getRollbackOnly()) {
+                        transaction.commit();
+                    } else {
+                        transaction.rollback();
+                        commit = false;
+                    }
+                }
+            } catch (RuntimeException e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw e;
+            } finally {
+                em.close();
+            }
+        }
+        
+        if (commit) {
+            for (Runnable action : unitOfWork.afterCommit) {
+                action.run();
+            }
+        }
+    }
+    
+    /**
+     * Run an action once the current unit of work has committed, or right away when none is active.
+     * Actions of a unit of work that rolls back are dropped.
+     */
+    public static void afterCommit(Runnable action) {
+        UnitOfWork unitOfWork = currentUnitOfWork.get();
+        if (unitOfWork == null) {
+            action.run();
+        } else {
+            unitOfWork.afterCommit.add(action);
+        }
+    }
+    
+    /**
+     * Run work as a single transaction. Joins the current unit of work when one is active,
+     * otherwise opens one for the duration of the call and commits it unless work throws.
+     */
+    public static <R> R runInTransaction(Supplier<R> work) {
+        if (isUnitOfWorkActive()) {
+            return work.get();
+        }
+        
+        beginUnitOfWork();
+        boolean success = false;
+        try {
+            R result = work.get();
+            success = true;
+            return result;
+        } finally {
+            endUnitOfWork(success);
+        }
+    }
+    
+    /**
+     * JDBC fetch size for queries whose results are streamed rather than loaded at once.
+     * MySQL Connector/J only streams rows with Integer.MIN_VALUE; other drivers take a row count.
+     */
+    public static int getStreamingFetchSize() {
+        int configured = getIntConfig("db.streamingFetchSize", 0);
+        if (configured != 0) {
+            return configured;
+        }
+        return getConfig("db.url", "").startsWith("jdbc:mysql:") ? Integer.MIN_VALUE : 500;
+    }
+    
+    /**
+     * Rows per JDBC batch (hibernate.jdbc.batch_size), also the flush interval of bulk writes
+     */
+    public static int getBatchSize() {
+        return Math.max(1, getIntConfig("hibernate.jdbc.batch_size", 50));
+    }
+    
+    /**
+     * Get connection pool state and latency histograms
+     */
+    public static Map<String, Object> getPoolStatistics() {
+        return poolMetrics.snapshot();
+    }
+    
+    /**
+     * Get second-level cache hit/miss statistics, overall and per region
+     */
+    public static Map<String, Object> getCacheStatistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("hitCount", statistics.getSecondLevelCacheHitCount());
+        result.put("missCount", statistics.getSecondLevelCacheMissCount());
+        result.put("putCount", statistics.getSecondLevelCachePutCount());
+        
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getDomainDataRegionStatistics(regionName);
+            Map<String, Object> regionInfo = new LinkedHashMap<>();
+            regionInfo.put("hitCount", region.getHitCount());
+            regionInfo.put("missCount", region.getMissCount());
+            regionInfo.put("putCount", region.getPutCount());
+            regions.put(regionName, regionInfo);
+        }
+        result.put("regions", regions);
+        return result;
+    }
+    
+    /**
+     * Evict every entry from the second-level cache, e.g. after changing data outside the application
+     */
+    public static void evictSecondLevelCache() {
+        entityManagerFactory.getCache().evictAll();
+    }
+    
+    /**
+     * Close the EntityManagerFactory and the connection pool
      */
     public static void close() {
         if (entityManagerFactory != null && entityManagerFactory.isOpen()) {
             entityManagerFactory.close();
         }
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+        }
+    }
+    
+    /**
+     * Per-thread holder for the request EntityManager
+     */
+    private static class UnitOfWork {
+        private EntityManager entityManager;
+        private final List<Runnable> afterCommit = new ArrayList<>(1);
     }
 }
-
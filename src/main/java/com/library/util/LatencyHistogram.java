@@ -0,0 +1,58 @@
+package com.library.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket, lock-free latency histogram
+ */
+public class LatencyHistogram {
+    
+    // Upper bounds (in milliseconds) of the histogram buckets; the last bucket is unbounded
+    private static final long[] BUCKET_BOUNDS_MS = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 5000};
+    
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_BOUNDS_MS.length + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    
+    public void record(long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int index = 0;
+        while (index < BUCKET_BOUNDS_MS.length && millis >= BUCKET_BOUNDS_MS[index]) {
+            index++;
+        }
+        buckets.incrementAndGet(index);
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+    
+    /**
+     * Mean of the recorded samples in milliseconds, 0 when empty
+     */
+    public double getMeanMillis() {
+        long samples = count.sum();
+        return samples == 0 ? 0.0 : totalNanos.sum() / (double) samples / 1_000_000.0;
+    }
+    
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", count.sum());
+        result.put("meanMs", getMeanMillis());
+        result.put("maxMs", maxNanos.get() / 1_000_000.0);
+        
+        Map<String, Long> histogram = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_BOUNDS_MS.length; i++) {
+            histogram.put("<" + BUCKET_BOUNDS_MS[i] + "ms", buckets.get(i));
+        }
+        histogram.put(">=" + BUCKET_BOUNDS_MS[BUCKET_BOUNDS_MS.length - 1] + "ms",
+            buckets.get(BUCKET_BOUNDS_MS.length));
+        result.put("buckets", histogram);
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+package com.library.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Opaque cursors and page assembly for keyset (seek) pagination
+ */
+public class PageCursor {
+    
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+    
+    private static final String SEPARATOR = "|";
+    
+    private PageCursor() {
+    }
+    
+    /**
+     * Encode the sort key of the last row of a page as an opaque, URL-safe cursor
+     */
+    public static String encode(Object... keys) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                builder.append(SEPARATOR);
+            }
+            builder.append(keys[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Decode a cursor into its sort key parts
+     * @throws IllegalArgumentException if the cursor is malformed or has the wrong number of parts
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != expectedParts) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return parts;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    /**
+     * Decode a single-part cursor holding a numeric ID
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static Long decodeId(String cursor) {
+        try {
+            return Long.parseLong(decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+    
+    /**
+     * Clamp a requested page size to 1..MAX_LIMIT, using DEFAULT_LIMIT when absent
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return DEFAULT_LIMIT;
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+    
+    /**
+     * Build a page from rows fetched with limit + 1: the extra row only signals that another
+     * page exists, and the cursor points at the last row actually returned.
+     */
+    public static <T> Map<String, Object> toPage(List<T> rows, int limit,
+                                                 Function<T, String> cursorOf,
+                                                 Function<T, ?> mapper) {
+        boolean hasMore = rows.size() > limit;
+        List<T> pageRows = hasMore ? rows.subList(0, limit) : rows;
+        
+        List<Object> data = new ArrayList<>(pageRows.size());
+        for (T row : pageRows) {
+            data.add(mapper.apply(row));
+        }
+        
+        Map<String, Object> page = new HashMap<>();
+        page.put("data", data);
+        page.put("nextCursor", hasMore ? cursorOf.apply(pageRows.get(pageRows.size() - 1)) : null);
+        return page;
+    }
+}
@@ -347,13 +347,43 @@ function displayBooks(books) {
 
 // Book search
 let searchTimeout;
+let suggestTimeout;
 document.getElementById('book-search').addEventListener('input', (e) => {
     clearTimeout(searchTimeout);
     searchTimeout = setTimeout(() => {
         loadBooks(e.target.value);
     }, 500);
+    
+    clearTimeout(suggestTimeout);
+    suggestTimeout = setTimeout(() => {
+        loadSuggestions(e.target.value);
+    }, 100);
 });
 
+// Autocomplete suggestions for the book search box
+async function loadSuggestions(prefix) {
+    const list = document.getElementById('book-suggestions');
+    if (prefix.trim().length < 2) {
+        list.innerHTML = '';
+        return;
+    }
+    
+    try {
+        const response = await apiRequest(`/books/suggest?prefix=${encodeURIComponent(prefix)}`);
+        if (response.success) {
+            list.innerHTML = '';
+            response.data.forEach(suggestion => {
+                const option = document.createElement('option');
+                option.value = suggestion.text;
+                option.label = suggestion.type;
+                list.appendChild(option);
+            });
+        }
+    } catch (error) {
+        console.error('Error loading suggestions:', error);
+    }
+}
+
 // Show book detail
 async function showBookDetail(bookId) {
     try {
@@ -0,0 +1,33 @@
+package com.library;
+
+/**
+ * Points the persistence unit at an in-memory H2 database (MySQL mode) with a schema generated
+ * from the entities. The database lives for the whole test JVM, so tests create their own rows
+ * with unique keys instead of relying on an empty table.
+ */
+public final class TestDatabase {
+    
+    private static boolean configured;
+    
+    private TestDatabase() {
+    }
+    
+    /**
+     * Set the connection properties; must run before the first JPAUtil call
+     */
+    public static synchronized void init() {
+        if (configured) {
+            return;
+        }
+        System.setProperty("db.driver", "org.h2.Driver");
+        System.setProperty("db.url", "jdbc:h2:mem:test;MODE=MySQL;DB_CLOSE_DELAY=-1;DATABASE_TO_LOWER=TRUE");
+        System.setProperty("db.username", "sa");
+        System.setProperty("db.password", "");
+        System.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        System.setProperty("hibernate.hbm2ddl.auto", "create");
+        System.setProperty("hibernate.show_sql", "false");
+        // Statistics stay on for statement-count assertions, without a log entry per session
+        System.setProperty("hibernate.session.events.log", "false");
+        configured = true;
+    }
+}
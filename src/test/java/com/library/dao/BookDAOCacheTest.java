@@ -0,0 +1,76 @@
+package com.library.dao;
+
+import com.library.TestDatabase;
+import com.library.dto.BorrowingRecordDTO;
+import com.library.entity.Author;
+import com.library.entity.Book;
+import com.library.entity.User;
+import com.library.service.BorrowingService;
+import com.library.util.JPAUtil;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CollectionStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Borrowing and returning a copy must leave the cached author lists of books warm
+ */
+class BookDAOCacheTest {
+    
+    private static final String BOOK_AUTHORS = Book.class.getName() + ".authors";
+    
+    private final BookDAO bookDAO = new BookDAO();
+    private final BorrowingService borrowingService = new BorrowingService();
+    
+    @BeforeAll
+    static void setUpDatabase() {
+        TestDatabase.init();
+    }
+    
+    @Test
+    void checkoutsKeepBookAuthorsCached() {
+        Book book = new Book("cache-1", "Cached authors", 3);
+        book.getAuthors().add(new AuthorDAO().save(new Author("Cache Author")));
+        Long bookId = bookDAO.update(book).getBookId();
+        Long userId = new UserDAO().save(new User("cacheuser", "cacheuser@test.local", "hash", "Cache", "User")).getUserId();
+        
+        Statistics statistics = JPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        loadAuthors(bookId);
+        statistics.clear();
+        assertEquals(1, loadAuthors(bookId));
+        assertEquals(1, statistics.getCollectionStatistics(BOOK_AUTHORS).getCacheHitCount());
+        
+        Map<String, Object> borrowed = borrowingService.borrowBook(userId, bookId, null, 14);
+        assertTrue((Boolean) borrowed.get("success"), String.valueOf(borrowed.get("message")));
+        Long recordId = ((BorrowingRecordDTO) borrowed.get("record")).getRecordId();
+        assertTrue((Boolean) borrowingService.returnBook(recordId, null).get("success"));
+        
+        statistics.clear();
+        assertEquals(1, loadAuthors(bookId));
+        CollectionStatistics authors = statistics.getCollectionStatistics(BOOK_AUTHORS);
+        assertEquals(1, authors.getCacheHitCount(), "book-authors region was evicted by the checkout");
+        assertEquals(0, authors.getCacheMissCount());
+    }
+    
+    /**
+     * Load a book's authors on a fresh EntityManager, so only the second-level cache can help
+     */
+    private static int loadAuthors(Long bookId) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            Book book = em.find(Book.class, bookId);
+            Hibernate.initialize(book.getAuthors());
+            return book.getAuthors().size();
+        } finally {
+            em.close();
+        }
+    }
+}
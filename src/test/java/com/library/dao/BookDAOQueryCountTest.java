@@ -0,0 +1,104 @@
+package com.library.dao;
+
+import com.library.TestDatabase;
+import com.library.dto.BookDTO;
+import com.library.entity.Author;
+import com.library.entity.Book;
+import com.library.entity.Category;
+import com.library.util.JPAUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The book finders behind the API, which load categories and authors, must issue the
+ * same number of statements however many books they return
+ */
+class BookDAOQueryCountTest {
+    
+    private final BookDAO bookDAO = new BookDAO();
+    
+    private static Category category;
+    private static List<Author> authors;
+    private static final List<Long> bookIds = new ArrayList<>();
+    
+    @BeforeAll
+    static void setUpDatabase() {
+        TestDatabase.init();
+        category = new CategoryDAO().save(new Category("Query count", "Books for statement counting"));
+        authors = List.of(new AuthorDAO().save(new Author("Count Author A")),
+            new AuthorDAO().save(new Author("Count Author B")));
+    }
+    
+    @Test
+    void detailFindersUseConstantStatementCount() {
+        addBooks(2);
+        Map<String, Long> fewBooks = countStatements();
+        addBooks(40);
+        Map<String, Long> manyBooks = countStatements();
+        
+        assertEquals(fewBooks, manyBooks);
+        manyBooks.forEach((finder, statements) ->
+            assertTrue(statements <= 2, finder + " issued " + statements + " statements"));
+    }
+    
+    /**
+     * Statements issued by each finder, including any lazy loads while mapping to views
+     */
+    private Map<String, Long> countStatements() {
+        Map<String, Supplier<List<BookDTO>>> finders = new LinkedHashMap<>();
+        finders.put("searchBooksWithDetails", () -> views(bookDAO.searchBooksWithDetails("Count Author")));
+        finders.put("findPageWithDetails", () -> views(bookDAO.findPageWithDetails(null, 100)));
+        finders.put("findAvailableDTOs", bookDAO::findAvailableDTOs);
+        finders.put("findDTOsByCategory", () -> bookDAO.findDTOsByCategory(category.getCategoryId()));
+        finders.put("findDTOsByIds", () -> bookDAO.findDTOsByIds(bookIds));
+        finders.put("findDTOPageAfter", () -> bookDAO.findDTOPageAfter(null, 100));
+        finders.put("forEachDTO", () -> {
+            List<BookDTO> books = new ArrayList<>();
+            bookDAO.forEachDTO(books::add);
+            return books;
+        });
+        
+        Statistics statistics = JPAUtil.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        Map<String, Long> counts = new LinkedHashMap<>();
+        finders.forEach((name, finder) -> {
+            JPAUtil.evictSecondLevelCache();
+            statistics.clear();
+            JPAUtil.beginUnitOfWork();
+            try {
+                List<BookDTO> books = finder.get();
+                assertTrue(books.stream().anyMatch(book -> book.getAuthors().size() == authors.size()),
+                    name + " returned no books with authors");
+            } finally {
+                JPAUtil.endUnitOfWork(true);
+            }
+            counts.put(name, statistics.getPrepareStatementCount());
+        });
+        return counts;
+    }
+    
+    private static List<BookDTO> views(List<Book> books) {
+        return books.stream().map(BookDTO::from).collect(Collectors.toList());
+    }
+    
+    private void addBooks(int count) {
+        for (int i = 0; i < count; i++) {
+            Book book = new Book("count-" + bookIds.size(), "Counted book " + bookIds.size(), 1);
+            book.setCategory(category);
+            // The authors are detached, so the book is merged rather than persisted
+            book.getAuthors().addAll(authors);
+            bookIds.add(bookDAO.update(book).getBookId());
+        }
+    }
+}
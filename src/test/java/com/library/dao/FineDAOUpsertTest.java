@@ -0,0 +1,94 @@
+package com.library.dao;
+
+import com.library.TestDatabase;
+import com.library.entity.Book;
+import com.library.entity.BorrowingRecord;
+import com.library.entity.Fine;
+import com.library.entity.User;
+import com.library.util.JPAUtil;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two writers (the overdue job and a return) upserting the fine of the same records at once
+ */
+class FineDAOUpsertTest {
+    
+    private static final int THREADS = 2;
+    private static final int RECORDS = 20;
+    
+    private final FineDAO fineDAO = new FineDAO();
+    
+    @BeforeAll
+    static void setUpDatabase() {
+        TestDatabase.init();
+    }
+    
+    @Test
+    void concurrentUpsertsCreateOneFinePerRecord() throws Exception {
+        User user = new UserDAO().save(new User("fineuser", "fineuser@test.local", "hash", "Fine", "User"));
+        Book book = new BookDAO().save(new Book("fine-1", "Overdue title", RECORDS));
+        List<Long> recordIds = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++) {
+            recordIds.add(new BorrowingRecordDAO().save(
+                new BorrowingRecord(user, book, LocalDateTime.now().minusDays(3))).getRecordId());
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        List<FineDAO.UpsertResult> results = new ArrayList<>();
+        try {
+            List<Future<List<FineDAO.UpsertResult>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                BigDecimal amount = BigDecimal.valueOf(t + 1);
+                futures.add(executor.submit(() -> {
+                    List<FineDAO.UpsertResult> upserts = new ArrayList<>();
+                    for (Long recordId : recordIds) {
+                        // Line the writers up so both read the record before either inserts
+                        barrier.await(10, TimeUnit.SECONDS);
+                        upserts.add(fineDAO.upsertFines(List.of(
+                            new FineDAO.Charge(recordId, user.getUserId(), amount, "Overdue"))));
+                    }
+                    return upserts;
+                }));
+            }
+            for (Future<List<FineDAO.UpsertResult>> future : futures) {
+                results.addAll(future.get(60, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        List<Fine> fines = findFines(recordIds);
+        assertEquals(RECORDS, fines.size());
+        assertEquals(RECORDS, results.stream().mapToInt(FineDAO.UpsertResult::getCreated).sum());
+        // The reported amount changes must add up to what is stored, as LibraryStatistics sums them
+        BigDecimal stored = fines.stream().map(Fine::getFineAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal reported = results.stream().map(FineDAO.UpsertResult::getAmountChange).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, stored.compareTo(reported), "stored " + stored + ", reported " + reported);
+    }
+    
+    private static List<Fine> findFines(List<Long> recordIds) {
+        EntityManager em = JPAUtil.getEntityManager();
+        try {
+            return em.createQuery("SELECT f FROM Fine f WHERE f.borrowingRecord.recordId IN :ids", Fine.class)
+                .setParameter("ids", recordIds)
+                .getResultList();
+        } finally {
+            em.close();
+        }
+    }
+}
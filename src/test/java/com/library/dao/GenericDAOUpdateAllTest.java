@@ -0,0 +1,54 @@
+package com.library.dao;
+
+import com.library.TestDatabase;
+import com.library.entity.Book;
+import com.library.util.JPAUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Batched updates of detached entities from inside a request unit of work
+ */
+class GenericDAOUpdateAllTest {
+    
+    private static final int BOOKS = 3;
+    
+    private final BookDAO bookDAO = new BookDAO();
+    
+    @BeforeAll
+    static void setUpDatabase() {
+        TestDatabase.init();
+    }
+    
+    @Test
+    void updateAllMergesEntitiesTheUnitOfWorkAlreadyHolds() {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < BOOKS; i++) {
+            books.add(bookDAO.save(new Book("update-all-" + i, "Batch updated " + i, 1)));
+        }
+        
+        JPAUtil.beginUnitOfWork();
+        boolean success = false;
+        try {
+            // Load managed copies first, as a request does before applying changes
+            for (Book book : books) {
+                bookDAO.findById(book.getBookId()).orElseThrow();
+                book.setTotalCopies(2);
+            }
+            bookDAO.updateAll(books);
+            success = true;
+        } finally {
+            JPAUtil.endUnitOfWork(success);
+        }
+        
+        JPAUtil.evictSecondLevelCache();
+        for (Book book : books) {
+            assertEquals(2, bookDAO.findById(book.getBookId()).orElseThrow().getTotalCopies());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.library.dao;
+
+import com.library.TestDatabase;
+import com.library.entity.Book;
+import com.library.util.JPAUtil;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Concurrent versioned updates of one row, each made from inside a request unit of work
+ */
+class GenericDAOUpdateWithRetryTest {
+    
+    private static final int THREADS = 2;
+    private static final int UPDATES_PER_THREAD = 25;
+    
+    private final BookDAO bookDAO = new BookDAO();
+    
+    @BeforeAll
+    static void setUpDatabase() {
+        TestDatabase.init();
+    }
+    
+    @Test
+    void concurrentUpdatesInUnitsOfWorkAreAllApplied() throws Exception {
+        Book book = bookDAO.save(new Book("retry-1", "Contended update", 1));
+        Long version = book.getVersion();
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                        // Line the threads up so their read-modify-write cycles overlap
+                        barrier.await(10, TimeUnit.SECONDS);
+                        JPAUtil.beginUnitOfWork();
+                        boolean success = false;
+                        try {
+                            bookDAO.updateWithRetry(book.getBookId(), b -> b.setTotalCopies(b.getTotalCopies() + 1));
+                            success = true;
+                        } finally {
+                            JPAUtil.endUnitOfWork(success);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        // A lost update would leave fewer copies than increments
+        JPAUtil.evictSecondLevelCache();
+        Book updated = bookDAO.findById(book.getBookId()).orElseThrow();
+        assertEquals(1 + THREADS * UPDATES_PER_THREAD, updated.getTotalCopies());
+        assertEquals(version + THREADS * UPDATES_PER_THREAD, updated.getVersion());
+    }
+}
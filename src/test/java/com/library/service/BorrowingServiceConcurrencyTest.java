@@ -0,0 +1,127 @@
+package com.library.service;
+
+import com.library.TestDatabase;
+import com.library.dao.BookDAO;
+import com.library.dao.BorrowingRecordDAO;
+import com.library.dao.UserDAO;
+import com.library.dto.BorrowingRecordDTO;
+import com.library.entity.Book;
+import com.library.entity.BorrowingRecord;
+import com.library.entity.User;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many threads borrowing and returning copies of one book at the same time
+ */
+class BorrowingServiceConcurrencyTest {
+    
+    private static final int THREADS = 32;
+    private static final int COPIES = 5;
+    
+    private final BorrowingService borrowingService = new BorrowingService();
+    private final BookDAO bookDAO = new BookDAO();
+    private final UserDAO userDAO = new UserDAO();
+    
+    @BeforeAll
+    static void setUpDatabase() {
+        TestDatabase.init();
+    }
+    
+    @Test
+    void concurrentCheckoutsNeverOversellAndReturnsCountOnce() throws Exception {
+        Book book = bookDAO.save(new Book("concurrency-1", "Contended title", COPIES));
+        List<Long> userIds = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            userIds.add(userDAO.save(new User("concurrent" + i, "concurrent" + i + "@test.local", "hash", "Test", "User" + i)).getUserId());
+        }
+        
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger lowestAvailable = new AtomicInteger(COPIES);
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                lowestAvailable.accumulateAndGet(availableCopies(book.getBookId()), Math::min);
+            }
+        });
+        try {
+            sampler.start();
+            
+            // Every user tries to take a copy at once
+            List<Long> recordIds = new CopyOnWriteArrayList<>();
+            List<Callable<Boolean>> borrows = new ArrayList<>();
+            for (Long userId : userIds) {
+                borrows.add(() -> {
+                    Map<String, Object> result = borrowingService.borrowBook(userId, book.getBookId(), null, 14);
+                    if (Boolean.TRUE.equals(result.get("success"))) {
+                        recordIds.add(((BorrowingRecordDTO) result.get("record")).getRecordId());
+                        return true;
+                    }
+                    return false;
+                });
+            }
+            assertEquals(COPIES, countSuccesses(executor, borrows));
+            assertEquals(0, availableCopies(book.getBookId()));
+            assertEquals(COPIES, new BorrowingRecordDAO().findByStatus(BorrowingRecord.BorrowStatus.BORROWED).stream()
+                .filter(record -> record.getBook().getBookId().equals(book.getBookId())).count());
+            
+            // Each record is returned by several threads; only one return per record may count
+            List<Callable<Boolean>> returns = new ArrayList<>();
+            for (Long recordId : recordIds) {
+                for (int i = 0; i < THREADS / COPIES; i++) {
+                    returns.add(() -> Boolean.TRUE.equals(borrowingService.returnBook(recordId, null).get("success")));
+                }
+            }
+            assertEquals(COPIES, countSuccesses(executor, returns));
+            assertEquals(COPIES, availableCopies(book.getBookId()));
+        } finally {
+            running.set(false);
+            sampler.join();
+            executor.shutdownNow();
+        }
+        assertTrue(lowestAvailable.get() >= 0, "available copies went below zero: " + lowestAvailable.get());
+    }
+    
+    /**
+     * Start all tasks together and count those that returned true
+     */
+    private static int countSuccesses(ExecutorService executor, List<Callable<Boolean>> tasks) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (Callable<Boolean> task : tasks) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        int successes = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(60, TimeUnit.SECONDS)) {
+                successes++;
+            }
+        }
+        return successes;
+    }
+    
+    private int availableCopies(Long bookId) {
+        // Read through a view query, which skips the second-level cache
+        return bookDAO.findDTOsByIds(List.of(bookId)).get(0).getAvailableCopies();
+    }
+}